@@ -0,0 +1,52 @@
+package org.playlimana.benchmark;
+
+import org.playlimana.model.Sorting;
+import org.playlimana.model.Visibility;
+import org.playlimana.model.entity.PlaylistEntity;
+import org.playlimana.model.entity.SongEntity;
+import org.playlimana.model.entity.SongInPlaylistEntity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Playlists and songs for the benchmarks, built without a database.
+ */
+final class BenchmarkData {
+
+    static final LocalDateTime ADD_DATE = LocalDateTime.of(2025, 7, 1, 12, 30, 15);
+
+    private BenchmarkData() {
+        // private constructor to hide the public one (sonarqube)
+    }
+
+    static List<SongEntity> songs(int numberOfSongs) {
+        List<SongEntity> songs = new ArrayList<>(numberOfSongs);
+        for (int i = 0; i < numberOfSongs; i++) {
+            SongEntity song = new SongEntity(
+                    "Song " + i,
+                    List.of("Artist " + (i % 97), "Featured Artist " + (i % 13)),
+                    "Album " + (i % 211),
+                    List.of("pop", "indie"),
+                    180 + i % 120,
+                    LocalDate.of(2000 + i % 25, 1 + i % 12, 1 + i % 28),
+                    List.of("https://open.spotify.com/track/" + Integer.toHexString(0x100000 + i)));
+            song.setSongId(i + 1L);
+            song.setCoverUrl("https://i.scdn.co/image/" + Integer.toHexString(0x200000 + i));
+            songs.add(song);
+        }
+        return songs;
+    }
+
+    static PlaylistEntity playlist(List<SongEntity> songs) {
+        PlaylistEntity playlist = new PlaylistEntity("Benchmark", "Playlist for the benchmarks",
+                "https://example.com/cover.jpg", Visibility.PUBLIC, Sorting.CUSTOM);
+        playlist.setPlaylistId(1L);
+        for (int i = 0; i < songs.size(); i++) {
+            playlist.addSong(new SongInPlaylistEntity(ADD_DATE.plusMinutes(i), playlist, songs.get(i)));
+        }
+        return playlist;
+    }
+}
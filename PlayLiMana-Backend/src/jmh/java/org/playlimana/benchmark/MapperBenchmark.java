@@ -0,0 +1,73 @@
+package org.playlimana.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.playlimana.model.dto.PlaylistDTO;
+import org.playlimana.model.entity.PlaylistEntity;
+import org.playlimana.model.entity.SongEntity;
+import org.playlimana.utils.Mapper;
+import org.playlimana.utils.PlaylistJson;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping between playlist entities and DTOs and JSON serialization of the DTO, the path of every playlist request.
+ * Run with {@code ./gradlew jmh -Pjmh.includes=MapperBenchmark}, the gc profiler reports the allocations
+ * per operation as {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int numberOfSongs;
+
+    private PlaylistEntity playlistEntity;
+    private List<SongEntity> songEntities;
+    private PlaylistDTO playlistDTO;
+    private ObjectWriter playlistWriter;
+    private ObjectWriter entityWriter;
+
+    @Setup
+    public void setUp() {
+        songEntities = BenchmarkData.songs(numberOfSongs);
+        playlistEntity = BenchmarkData.playlist(songEntities);
+        playlistDTO = Mapper.toPlaylistDTO(playlistEntity, BenchmarkData.ADD_DATE);
+        ObjectMapper objectMapper = new ObjectMapper();
+        playlistWriter = objectMapper.writerFor(PlaylistDTO.class);
+        entityWriter = objectMapper.writerFor(PlaylistJson.class);
+    }
+
+    @Benchmark
+    public PlaylistDTO toPlaylistDTO() {
+        return Mapper.toPlaylistDTO(playlistEntity, BenchmarkData.ADD_DATE);
+    }
+
+    @Benchmark
+    public PlaylistEntity toPlaylistEntity() {
+        return Mapper.toPlaylistEntity(playlistDTO, songEntities);
+    }
+
+    @Benchmark
+    public byte[] serializePlaylistDTO() throws JsonProcessingException {
+        return playlistWriter.writeValueAsBytes(playlistDTO);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws JsonProcessingException {
+        return playlistWriter.writeValueAsBytes(Mapper.toPlaylistDTO(playlistEntity, BenchmarkData.ADD_DATE));
+    }
+
+    // the same JSON as mapAndSerialize without the DTOs
+    @Benchmark
+    public byte[] serializeEntities() throws JsonProcessingException {
+        return entityWriter.writeValueAsBytes(new PlaylistJson(playlistEntity, BenchmarkData.ADD_DATE));
+    }
+}
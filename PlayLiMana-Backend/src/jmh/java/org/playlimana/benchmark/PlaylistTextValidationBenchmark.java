@@ -0,0 +1,59 @@
+package org.playlimana.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.playlimana.validation.PlaylistTextValidator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the former validation with {@code String.matches}, which compiles the regex on every call,
+ * to a precompiled pattern and to {@link PlaylistTextValidator}.
+ * Run with {@code ./gradlew jmh -Pjmh.includes=PlaylistTextValidation}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlaylistTextValidationBenchmark {
+
+    private static final String VALID_CHARACTERS_REGEX = "^[\\p{L}\\p{N} _\\-\\.\\u2000-\\u206F\\u2B50\\u2600-\\u26FF]*$";
+    private static final Pattern VALID_CHARACTERS = Pattern.compile(VALID_CHARACTERS_REGEX);
+
+    /**
+     * latin: plain text, symbols: valid text full of ☀-⛿ and ⭐, emoji: like symbols but ends with 😀,
+     * which has to be decoded from a surrogate pair and is invalid
+     */
+    @Param({"latin", "symbols", "emoji"})
+    public String input;
+
+    private String text;
+    private final PlaylistTextValidator validator = new PlaylistTextValidator();
+
+    @Setup
+    public void setUp() {
+        text = switch (input) {
+            case "latin" -> "Chill Vibes for a long evening ".repeat(8);
+            case "symbols" -> "☀☁ ⭐ Summer ⚡⚽ ".repeat(16);
+            case "emoji" -> "☀☁ ⭐ Summer ⚡⚽ ".repeat(16) + "😀🎉";
+            default -> throw new IllegalArgumentException(input);
+        };
+    }
+
+    @Benchmark
+    public boolean stringMatches() {
+        return text.matches(VALID_CHARACTERS_REGEX);
+    }
+
+    @Benchmark
+    public boolean precompiledPattern() {
+        return VALID_CHARACTERS.matcher(text).matches();
+    }
+
+    @Benchmark
+    public boolean validator() {
+        return validator.validateDescription(text).isValid();
+    }
+}
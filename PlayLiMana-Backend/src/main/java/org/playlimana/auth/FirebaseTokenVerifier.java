@@ -6,11 +6,14 @@ import com.google.firebase.FirebaseOptions;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseAuthException;
 import com.google.firebase.auth.FirebaseToken;
+import org.playlimana.metrics.RequestStatistics;
 
 import java.io.IOException;
 import java.io.InputStream;
 
 public class FirebaseTokenVerifier {
+    private static final VerifiedTokenCache TOKEN_CACHE = new VerifiedTokenCache();
+
     private FirebaseTokenVerifier(){
         // to hide the public constructor satisfying sonarqube
     }
@@ -42,10 +45,30 @@ public class FirebaseTokenVerifier {
     }
 
     public static FirebaseToken verify(String idToken) {
+        long start = System.nanoTime();
+        try {
+            return verifyUntimed(idToken);
+        } finally {
+            RequestStatistics request = RequestStatistics.current();
+            if (request != null) {
+                request.tokenVerified(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static FirebaseToken verifyUntimed(String idToken) {
+        // repeated requests with the same token only cost a hash lookup
+        FirebaseToken cached = TOKEN_CACHE.get(idToken);
+        if (cached != null) {
+            return cached;
+        }
+
         // safe to call over and over
         initialize();
         try {
-            return FirebaseAuth.getInstance().verifyIdToken(idToken);
+            FirebaseToken decoded = FirebaseAuth.getInstance().verifyIdToken(idToken);
+            TOKEN_CACHE.put(idToken, decoded);
+            return decoded;
         } catch (FirebaseAuthException e) {
             throw new FirebaseException("Invalid Firebase token", e);
         }
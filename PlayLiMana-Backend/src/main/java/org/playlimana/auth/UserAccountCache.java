@@ -0,0 +1,49 @@
+package org.playlimana.auth;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.playlimana.model.entity.UserAccountEntity;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cross-request cache of uid -> account summary so that authorizing a known user
+ * doesn't need a SELECT on UserAccountEntity.
+ * Every change to an account has to invalidate its entry.
+ */
+@ApplicationScoped
+public class UserAccountCache {
+
+    private static final int MAX_ENTRIES = 10_000;
+
+    public record UserAccountSummary(String uid, String username) {
+    }
+
+    // access ordered LinkedHashMap = least recently used account is dropped first
+    private final Map<String, UserAccountSummary> summaries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, UserAccountSummary> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    public synchronized UserAccountSummary get(String uid) {
+        if (uid == null) {
+            return null;
+        }
+        return summaries.get(uid);
+    }
+
+    public synchronized void put(UserAccountEntity user) {
+        if (user == null || user.getUid() == null) {
+            return;
+        }
+        summaries.put(user.getUid(), new UserAccountSummary(user.getUid(), user.getUsername()));
+    }
+
+    public synchronized void invalidate(String uid) {
+        if (uid != null) {
+            summaries.remove(uid);
+        }
+    }
+}
@@ -13,13 +13,17 @@ public class UserProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(UserProvider.class);
     private String userId;
+    // resolved once and reused as long as it belongs to the current persistence context
+    private UserAccountEntity user;
 
     // changed the way the userAccountRepository gets injected to satisfy sonarqube
     UserAccountRepository userAccountRepository;
+    UserAccountCache userAccountCache;
 
     @Inject
-    public UserProvider(UserAccountRepository userAccountRepository){
+    public UserProvider(UserAccountRepository userAccountRepository, UserAccountCache userAccountCache){
         this.userAccountRepository = userAccountRepository;
+        this.userAccountCache = userAccountCache;
     }
 
     public UserAccountEntity getUser() {
@@ -27,11 +31,25 @@ public class UserProvider {
             logger.warn("User UID not set in UserProvider");
             return null;
         }
-        return userAccountRepository.findByUid(userId);
+
+        // a transaction gets its own persistence context, so an entity from another one has to be reloaded
+        if (user == null || !userAccountRepository.getEntityManager().contains(user)) {
+            user = userAccountRepository.findByUid(userId);
+        }
+        return user;
     }
 
     public void setUser(UserAccountEntity user) {
         this.userId = user.getUid();
+        this.user = user;
+        userAccountCache.put(user);
         logger.info("Current user set to {}", user.getUsername());
     }
+
+    // used when the account is already known from the cache, the entity is only loaded if it's needed
+    public void setUserSummary(UserAccountCache.UserAccountSummary summary) {
+        this.userId = summary.uid();
+        this.user = null;
+        logger.info("Current user set to {}", summary.username());
+    }
 }
@@ -0,0 +1,126 @@
+package org.playlimana.auth;
+
+import com.google.firebase.auth.FirebaseToken;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Bounded cache of already verified Firebase ID tokens.
+ * Tokens are keyed by their SHA-256 hash (the raw token is never kept) and are
+ * evicted as soon as their {@code exp} claim is reached. A full cache evicts the token that expires first,
+ * which is found in a set ordered by expiration, so a put doesn't scan all tokens.
+ */
+public class VerifiedTokenCache {
+
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+    private static final String EXPIRATION_CLAIM = "exp";
+
+    private final Map<String, CachedToken> tokens = new ConcurrentHashMap<>();
+    // the same entries as tokens, expired tokens come first
+    private final NavigableSet<CachedToken> byExpiration = new ConcurrentSkipListSet<>(
+            Comparator.comparingLong(CachedToken::expiresAt).thenComparing(CachedToken::key));
+    private final int maxEntries;
+    private final Clock clock;
+
+    public VerifiedTokenCache() {
+        this(DEFAULT_MAX_ENTRIES, Clock.systemUTC());
+    }
+
+    public VerifiedTokenCache(int maxEntries, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the cached token or {@code null} if it is unknown or already expired.
+     */
+    public FirebaseToken get(String idToken) {
+        if (idToken == null) {
+            return null;
+        }
+
+        String key = hash(idToken);
+        CachedToken cached = tokens.get(key);
+        if (cached == null) {
+            return null;
+        }
+
+        if (cached.expiresAt() <= now()) {
+            remove(cached);
+            return null;
+        }
+        return cached.token();
+    }
+
+    /**
+     * Stores a verified token until its {@code exp} claim. Tokens without a usable
+     * expiration are not cached so that they are always verified again.
+     */
+    public synchronized void put(String idToken, FirebaseToken decoded) {
+        if (idToken == null || decoded == null || decoded.getClaims() == null) {
+            return;
+        }
+
+        if (!(decoded.getClaims().get(EXPIRATION_CLAIM) instanceof Number expiration)
+                || expiration.longValue() <= now()) {
+            return;
+        }
+
+        String key = hash(idToken);
+        CachedToken previous = tokens.get(key);
+        if (previous != null) {
+            remove(previous);
+        }
+        // expired tokens expire first, so they are evicted before valid ones
+        while (tokens.size() >= maxEntries) {
+            CachedToken first = byExpiration.pollFirst();
+            if (first == null) {
+                break;
+            }
+            tokens.remove(first.key(), first);
+        }
+        CachedToken cached = new CachedToken(key, decoded, expiration.longValue());
+        byExpiration.add(cached);
+        tokens.put(key, cached);
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+
+    public synchronized void clear() {
+        tokens.clear();
+        byExpiration.clear();
+    }
+
+    private void remove(CachedToken cached) {
+        byExpiration.remove(cached);
+        tokens.remove(cached.key(), cached);
+    }
+
+    private long now() {
+        return clock.instant().getEpochSecond();
+    }
+
+    static String hash(String idToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(idToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM has to provide SHA-256
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record CachedToken(String key, FirebaseToken token, long expiresAt) {
+    }
+}
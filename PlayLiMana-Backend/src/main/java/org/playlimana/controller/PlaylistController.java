@@ -1,5 +1,8 @@
 package org.playlimana.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -7,25 +10,44 @@ import jakarta.json.Json;
 import jakarta.json.JsonObject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.metrics.annotation.Counted;
+import org.eclipse.microprofile.metrics.annotation.Timed;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.resteasy.reactive.PathPart;
 import org.jboss.resteasy.reactive.RestForm;
+import org.jboss.resteasy.reactive.multipart.FileUpload;
 import org.playlimana.model.Sorting;
 import org.playlimana.model.Visibility;
+import org.playlimana.model.dto.FacetsDTO;
+import org.playlimana.model.dto.LibrarySongDTO;
+import org.playlimana.model.dto.PageDTO;
 import org.playlimana.model.dto.PlaylistDTO;
+import org.playlimana.model.dto.PlaylistSummaryDTO;
 import org.playlimana.model.dto.SongDTO;
+import org.playlimana.model.dto.SongMoveDTO;
+import org.playlimana.model.dto.SongsAddedDTO;
 import org.playlimana.model.entity.CoverFileEntity;
+import org.playlimana.model.entity.CoverVariantEntity;
 import org.playlimana.service.PlaylistService;
+import org.playlimana.service.SongSearchService;
 import org.playlimana.service.SongService;
 import org.playlimana.service.UserAccountService;
+import org.playlimana.storage.CoverStorage;
+import org.playlimana.utils.ByteRange;
+import org.playlimana.utils.Mapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
 
 @ApplicationScoped
 @Path("/playlists")
@@ -34,17 +56,34 @@ public class PlaylistController {
 
     PlaylistService playlistService;
     SongService songService;
+    SongSearchService songSearchService;
     UserAccountService userAccountService;
+    ObjectMapper objectMapper;
+    CoverStorage coverStorage;
+    // read-only endpoints write the entities as JSON without mapping them to DTOs first
+    boolean serializeEntities;
     private static final Logger logger = LoggerFactory.getLogger(PlaylistController.class);
 
     // constant to stop duplicating the string (sonarqube)
     private static final String INVALID_PLAYLIST_ID_OR_NAME = "Invalid playlist ID or name";
+    private static final String NEXT_AFTER_HEADER = "X-Next-After";
+    private static final String ETAG_HEADER = "ETag";
+    private static final String CACHE_CONTROL_HEADER = "Cache-Control";
 
     @Inject
-    public PlaylistController(PlaylistService playlistService, SongService songService, UserAccountService userAccountService) {
+    public PlaylistController(PlaylistService playlistService, SongService songService,
+                              SongSearchService songSearchService,
+                              UserAccountService userAccountService, ObjectMapper objectMapper,
+                              CoverStorage coverStorage,
+                              @ConfigProperty(name = "playlimana.json.serialize-entities", defaultValue = "true")
+                              boolean serializeEntities) {
         this.playlistService = playlistService;
         this.songService = songService;
+        this.songSearchService = songSearchService;
         this.userAccountService = userAccountService;
+        this.objectMapper = objectMapper;
+        this.coverStorage = coverStorage;
+        this.serializeEntities = serializeEntities;
     }
 
 
@@ -57,12 +96,166 @@ public class PlaylistController {
     @APIResponse(responseCode = "200", description = "A list of playlists")
     @APIResponse(responseCode = "401", description = "Unauthorized access")
     @Counted(name = "getPlaylists_counter", description = "How many times the getPlaylist endpoint was called")
-    public Response getPlaylists(@HeaderParam("Authorization") String authorizationHeader) {
+    @Timed(name = "getPlaylists_timer", description = "How long the getPlaylists endpoint takes")
+    public Response getPlaylists(@HeaderParam("Authorization") String authorizationHeader,
+                                 @Parameter(description = "pretty-print the JSON response")
+                                 @QueryParam("pretty") boolean pretty) {
         if (!userAccountService.isAuthorized(authorizationHeader)) {
             return Response.status(Response.Status.UNAUTHORIZED).build();
         }
 
-        return Response.ok().entity(playlistService.getLibrary()).build();
+        if (serializeEntities) {
+            // the service opens its transaction while the response is written
+            ObjectWriter writer = jsonWriter(pretty);
+            StreamingOutput json = output -> playlistService.writePlaylistsJson(writer, output);
+            return Response.ok().entity(json).build();
+        }
+        return Response.ok().entity(streamJson(playlistService.getPlaylists(), pretty)).build();
+    }
+
+
+    /**
+     * Retrieves the current user's library without the songs of the playlists.
+     */
+    @GET
+    @Path("/summary")
+    @Produces("application/json")
+    @Operation(summary = "Get library summary", description = "Fetches all playlists of the authenticated user " +
+            "without their songs. Songs can be loaded page by page via /playlists/{playlistId}/songs.")
+    @APIResponse(responseCode = "200", description = "A list of playlist summaries")
+    @APIResponse(responseCode = "401", description = "Unauthorized access")
+    @Counted(name = "getLibrarySummary_counter", description = "How many times the library summary endpoint was called")
+    @Timed(name = "getLibrarySummary_timer", description = "How long the getLibrarySummary endpoint takes")
+    public Response getLibrarySummary(@HeaderParam("Authorization") String authorizationHeader,
+                                      @Parameter(description = "pretty-print the JSON response")
+                                      @QueryParam("pretty") boolean pretty) {
+        if (!userAccountService.isAuthorized(authorizationHeader)) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        return Response.ok().entity(streamJson(playlistService.getLibrarySummary(), pretty)).build();
+    }
+
+
+    /**
+     * Searches the songs of all playlists in the current user's library.
+     */
+    @GET
+    @Path("/search")
+    @Produces("application/json")
+    @Operation(summary = "Search library", description = "Searches title, album, artists and genres of the songs " +
+            "in all playlists of the authenticated user. Every song is returned once with the playlists that " +
+            "contain it and its position in each.")
+    @APIResponse(responseCode = "200", description = "A page of matching songs with their playlists")
+    @APIResponse(responseCode = "400", description = "Empty or too long query or invalid page")
+    @APIResponse(responseCode = "401", description = "Unauthorized access")
+    @Counted(name = "searchLibrary_counter", description = "How many times the library was searched")
+    @Timed(name = "searchLibrary_timer", description = "How long the searchLibrary endpoint takes")
+    public Response searchLibrary(@HeaderParam("Authorization") String authorizationHeader,
+                                  @Parameter(description = "words to search for (max. 200 characters)")
+                                  @QueryParam("q") String query,
+                                  @Parameter(description = "index of the page, starting at 0")
+                                  @QueryParam("page") @DefaultValue("0") int page,
+                                  @Parameter(description = "number of songs per page (max. 100)")
+                                  @QueryParam("size") @DefaultValue("20") int size) {
+        if (!userAccountService.isAuthorized(authorizationHeader)) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        PageDTO<LibrarySongDTO> songs = songSearchService.searchLibrary(query, page, size);
+        if (songs != null) {
+            return Response.ok().entity(songs).build();
+        }
+        return Response.status(Response.Status.BAD_REQUEST).entity("Invalid query or page").build();
+    }
+
+
+    /**
+     * Retrieves the artists and genres of all songs in the current user's library.
+     */
+    @GET
+    @Path("/facets")
+    @Produces("application/json")
+    @Operation(summary = "Get library facets", description = "Counts the songs of every artist and genre over all " +
+            "playlists of the authenticated user, every song is counted once.")
+    @APIResponse(responseCode = "200", description = "Artists and genres with their number of songs")
+    @APIResponse(responseCode = "400", description = "Invalid limit")
+    @APIResponse(responseCode = "401", description = "Unauthorized access")
+    @Counted(name = "getLibraryFacets_counter", description = "How many times the facets of the library were fetched")
+    @Timed(name = "getLibraryFacets_timer", description = "How long the getLibraryFacets endpoint takes")
+    public Response getLibraryFacets(@HeaderParam("Authorization") String authorizationHeader,
+                                     @Parameter(description = "maximum number of artists and of genres (max. 500)")
+                                     @QueryParam("limit") @DefaultValue("50") int limit) {
+        if (!userAccountService.isAuthorized(authorizationHeader)) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        FacetsDTO facets = playlistService.getLibraryFacets(limit);
+        if (facets != null) {
+            return Response.ok().entity(facets).build();
+        }
+        return Response.status(Response.Status.BAD_REQUEST).entity("Invalid limit").build();
+    }
+
+
+    /**
+     * Retrieves the artists and genres of the songs of a playlist.
+     */
+    @GET
+    @Path("/{playlistId}/facets")
+    @Produces("application/json")
+    @Operation(summary = "Get playlist facets", description = "Counts the songs of every artist and genre of a playlist.")
+    @APIResponse(responseCode = "200", description = "Artists and genres with their number of songs")
+    @APIResponse(responseCode = "400", description = "Invalid playlist ID or limit")
+    @APIResponse(responseCode = "401", description = "Unauthorized access")
+    @Counted(name = "getPlaylistFacets_counter", description = "How many times the facets of a playlist were fetched")
+    @Timed(name = "getPlaylistFacets_timer", description = "How long the getPlaylistFacets endpoint takes")
+    public Response getPlaylistFacets(@HeaderParam("Authorization") String authorizationHeader,
+                                      @Parameter(required = true) @PathParam("playlistId") Long playlistId,
+                                      @Parameter(description = "maximum number of artists and of genres (max. 500)")
+                                      @QueryParam("limit") @DefaultValue("50") int limit) {
+        if (!userAccountService.isAuthorized(authorizationHeader)) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        FacetsDTO facets = playlistService.getPlaylistFacets(playlistId, limit);
+        if (facets != null) {
+            return Response.ok().entity(facets).build();
+        }
+        return Response.status(Response.Status.BAD_REQUEST).entity("Invalid playlist ID or limit").build();
+    }
+
+
+    /**
+     * Retrieves one page of the songs of a playlist, sorted by the database.
+     */
+    @GET
+    @Path("/{playlistId}/songs")
+    @Produces("application/json")
+    @Operation(summary = "Get songs of playlist", description = "Fetches the songs of a playlist page by page in the "
+            + "requested order. The songs keep their positionInPlaylist of the custom order.")
+    @APIResponse(responseCode = "200", description = "A page of songs")
+    @APIResponse(responseCode = "400", description = "Invalid playlist ID or page")
+    @APIResponse(responseCode = "401", description = "Unauthorized access")
+    @Counted(name = "getPlaylistSongs_counter", description = "How many times songs of a playlist were fetched")
+    @Timed(name = "getPlaylistSongs_timer", description = "How long the getPlaylistSongs endpoint takes")
+    public Response getPlaylistSongs(@HeaderParam("Authorization") String authorizationHeader,
+                                     @Parameter(required = true) @PathParam("playlistId") Long playlistId,
+                                     @Parameter(description = "order of the songs, the playlist's sorting if missing")
+                                     @QueryParam("sort") Sorting sort,
+                                     @Parameter(description = "index of the page, starting at 0")
+                                     @QueryParam("page") @DefaultValue("0") int page,
+                                     @Parameter(description = "number of songs per page (max. 500)")
+                                     @QueryParam("size") @DefaultValue("100") int size) {
+        if (!userAccountService.isAuthorized(authorizationHeader)) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        PageDTO<SongDTO> songs = playlistService.getPlaylistSongs(playlistId, sort, page, size);
+        if (songs != null) {
+            return Response.ok().entity(songs).build();
+        }
+        return Response.status(Response.Status.BAD_REQUEST).entity("Invalid playlist ID or page").build();
     }
 
 
@@ -77,15 +270,24 @@ public class PlaylistController {
     @APIResponse(responseCode = "401", description = "Unauthorized access")
     @APIResponse(responseCode = "404", description = "Playlist not found")
     @Counted(name = "getPlaylist_counter", description = "How many times a specific playlist was fetched")
+    @Timed(name = "getPlaylist_timer", description = "How long the getPlaylist endpoint takes")
     public Response getPlaylist(@HeaderParam("Authorization") String authorizationHeader,
                                 @Parameter(required = true) @PathParam("playlistId") long playlistId) {
         if (!userAccountService.isAuthorized(authorizationHeader)) {
             return Response.status(Response.Status.UNAUTHORIZED).build();
         }
 
+        if (serializeEntities) {
+            if (!playlistService.isPlaylistReadable(playlistId)) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+            ObjectWriter writer = jsonWriter(false);
+            StreamingOutput json = output -> playlistService.writePlaylistJson(playlistId, writer, output);
+            return Response.ok().entity(json).build();
+        }
         PlaylistDTO playlist = playlistService.getPlaylistDTO(playlistId);
         if (playlist != null) {
-            return Response.ok().entity(playlist).build();
+            return Response.ok().entity(streamJson(playlist, false)).build();
         }
         return Response.status(Response.Status.NOT_FOUND).build();
     }
@@ -103,6 +305,7 @@ public class PlaylistController {
     @APIResponse(responseCode = "400", description = "Invalid playlist data")
     @APIResponse(responseCode = "401", description = "Unauthorized access")
     @RequestBody(description = "Playlist object to be created")
+    @Timed(name = "createPlaylist_timer", description = "How long the createPlaylist endpoint takes")
     public Response createPlaylist(@HeaderParam("Authorization") String authorizationHeader,
                                    PlaylistDTO playlist) {
         if (!userAccountService.isAuthorized(authorizationHeader)) {
@@ -124,19 +327,24 @@ public class PlaylistController {
     @POST
     @Path("/{playlistId}/copy")
     @Produces("application/json")
-    @Operation(summary = "Copy playlist", description = "Creates a copy of the specified playlist.")
+    @Operation(summary = "Copy playlist", description = "Creates a copy of the specified playlist and returns it " +
+            "without its songs.")
     @APIResponse(responseCode = "200", description = "Playlist copied")
     @APIResponse(responseCode = "400", description = "Invalid playlist ID")
     @APIResponse(responseCode = "401", description = "Unauthorized")
     @Counted(name = "copyPlaylistCounter", description = "How many times a playlist was copied")
+    @Timed(name = "copyPlaylist_timer", description = "How long the copyPlaylist endpoint takes")
     public Response copyPlaylist(@HeaderParam("Authorization") String authorizationHeader,
                                  @Parameter(required = true) @PathParam("playlistId") Long playlistId) {
         if (!userAccountService.isAuthorized(authorizationHeader)) {
             return Response.status(Response.Status.UNAUTHORIZED).build();
         }
 
-        PlaylistDTO copy = playlistService.copyPlaylist(playlistId);
-        return responseHelper(copy, INVALID_PLAYLIST_ID_OR_NAME);
+        PlaylistSummaryDTO copy = playlistService.copyPlaylist(playlistId);
+        if (copy != null) {
+            return Response.ok().entity(copy).build();
+        }
+        return Response.status(Response.Status.BAD_REQUEST).entity(INVALID_PLAYLIST_ID_OR_NAME).build();
     }
 
 
@@ -151,6 +359,7 @@ public class PlaylistController {
     @APIResponse(responseCode = "400", description = "Deletion failed")
     @APIResponse(responseCode = "401", description = "Unauthorized")
     @Counted(name = "deletePlaylistCounter", description = "How many times ta playlist was deleted")
+    @Timed(name = "deletePlaylist_timer", description = "How long the deletePlaylist endpoint takes")
     public Response deletePlaylist(@HeaderParam("Authorization") String authorizationHeader,
                                    @Parameter(required = true) @PathParam("playlistId") Long playlistId) {
         if (!userAccountService.isAuthorized(authorizationHeader)) {
@@ -180,6 +389,7 @@ public class PlaylistController {
     @APIResponse(responseCode = "400", description = "Invalid playlist ID")
     @APIResponse(responseCode = "401", description = "Unauthorized")
     @Counted(name = "addToLibraryCounter", description = "How many times a playlist was added to a library")
+    @Timed(name = "addPlaylistToLibrary_timer", description = "How long the addPlaylistToLibrary endpoint takes")
     public Response addPlaylistToLibrary(@HeaderParam("Authorization") String authorizationHeader,
                                          @Parameter(required = true) @PathParam("playlistId") Long playlistId) {
         if (!userAccountService.isAuthorized(authorizationHeader)) {
@@ -206,6 +416,7 @@ public class PlaylistController {
     @APIResponse(responseCode = "400", description = "Invalid playlist ID")
     @APIResponse(responseCode = "401", description = "Unauthorized")
     @Counted(name = "removeFromLibraryCounter", description = "How many times a playlist was removed from a library")
+    @Timed(name = "removePlaylistFromLibrary_timer", description = "How long the removePlaylistFromLibrary endpoint takes")
     public Response removePlaylistFromLibrary(@HeaderParam("Authorization") String authorizationHeader,
                                               @Parameter(required = true) @PathParam("playlistId") Long playlistId) {
         if (!userAccountService.isAuthorized(authorizationHeader)) {
@@ -234,6 +445,7 @@ public class PlaylistController {
     @APIResponse(responseCode = "401", description = "Unauthorized")
     @RequestBody(description = "Playlist object with updated fields")
     @Counted(name = "editPlaylistCounter", description = "How many times a playlist was edited")
+    @Timed(name = "editPlaylist_timer", description = "How long the editPlaylist endpoint takes")
     public Response editPlaylist(@HeaderParam("Authorization") String authorizationHeader,
                                  @Parameter(required = true) @PathParam("playlistId") Long playlistId,
                                  PlaylistDTO playlist) {
@@ -259,6 +471,7 @@ public class PlaylistController {
     @APIResponse(responseCode = "401", description = "Unauthorized")
     @RequestBody(description = "Song object to add to playlist")
     @Counted(name = "addSongToPlaylistCounter", description = "How many times a new song was added to a playlist")
+    @Timed(name = "addSongToPlaylist_timer", description = "How long the addSongToPlaylist endpoint takes")
     public Response addSongToPlaylist(@HeaderParam("Authorization") String authorizationHeader,
                                       @Parameter(required = true) @PathParam("playlistId") Long playlistId,
                                       SongDTO song) {
@@ -271,6 +484,36 @@ public class PlaylistController {
     }
 
 
+    /**
+     * Adds several songs to the end of a playlist at once.
+     */
+    @POST
+    @Path("/{playlistId}/songs/batch")
+    @Consumes("application/json")
+    @Produces("application/json")
+    @Operation(summary = "Add songs", description = "Adds several songs to the end of the specified playlist " +
+            "in one transaction and returns only their positions and the new totals of the playlist.")
+    @APIResponse(responseCode = "200", description = "Songs added")
+    @APIResponse(responseCode = "400", description = "Invalid playlist ID or too many songs")
+    @APIResponse(responseCode = "401", description = "Unauthorized")
+    @RequestBody(description = "Song objects to add to playlist (max. 10000)")
+    @Counted(name = "addSongsToPlaylistCounter", description = "How many times several songs were added to a playlist")
+    @Timed(name = "addSongsToPlaylist_timer", description = "How long the addSongsToPlaylist endpoint takes")
+    public Response addSongsToPlaylist(@HeaderParam("Authorization") String authorizationHeader,
+                                       @Parameter(required = true) @PathParam("playlistId") Long playlistId,
+                                       List<SongDTO> songs) {
+        if (!userAccountService.isAuthorized(authorizationHeader)) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        SongsAddedDTO added = playlistService.addSongsToPlaylist(playlistId, songs);
+        if (added != null) {
+            return Response.ok().entity(added).build();
+        }
+        return Response.status(Response.Status.BAD_REQUEST).entity("Invalid playlist ID or songs").build();
+    }
+
+
     /**
      * Removes a song from a playlist at a given position.
      */
@@ -282,6 +525,7 @@ public class PlaylistController {
     @APIResponse(responseCode = "400", description = "Invalid IDs or position")
     @APIResponse(responseCode = "401", description = "Unauthorized")
     @Counted(name = "removeSongFromPlaylistCounter", description = "How many times a song was removed from a playlist")
+    @Timed(name = "removeSongFromPlaylist_timer", description = "How long the removeSongFromPlaylist endpoint takes")
     public Response removeSongFromPlaylist(@HeaderParam("Authorization") String authorizationHeader,
                                            @Parameter(required = true) @PathParam("playlistId") Long playlistId,
                                            @Parameter(required = true) @PathParam("songId") Long songId,
@@ -300,6 +544,36 @@ public class PlaylistController {
     }
 
 
+    /**
+     * Removes several songs from a playlist at once.
+     */
+    @POST
+    @Path("/{playlistId}/songs/remove")
+    @Consumes("application/json")
+    @Produces("application/json")
+    @Operation(summary = "Remove songs", description = "Removes the songs at the given positions from the playlist " +
+            "in one transaction.")
+    @APIResponse(responseCode = "200", description = "Songs removed")
+    @APIResponse(responseCode = "400", description = "Invalid playlist ID or positions")
+    @APIResponse(responseCode = "401", description = "Unauthorized")
+    @RequestBody(description = "Positions of the songs to remove (max. 10000)")
+    @Counted(name = "removeSongsFromPlaylistCounter", description = "How many times several songs were removed from a playlist")
+    @Timed(name = "removeSongsFromPlaylist_timer", description = "How long the removeSongsFromPlaylist endpoint takes")
+    public Response removeSongsFromPlaylist(@HeaderParam("Authorization") String authorizationHeader,
+                                            @Parameter(required = true) @PathParam("playlistId") Long playlistId,
+                                            List<Integer> positions) {
+        if (!userAccountService.isAuthorized(authorizationHeader)) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        PlaylistSummaryDTO edited = playlistService.removeSongsFromPlaylist(playlistId, positions);
+        if (edited != null) {
+            return Response.ok().entity(edited).build();
+        }
+        return Response.status(Response.Status.BAD_REQUEST).entity("Invalid playlist ID or positions").build();
+    }
+
+
     /**
      * Changes the order of songs in a playlist.
      */
@@ -312,6 +586,7 @@ public class PlaylistController {
     @APIResponse(responseCode = "400", description = "Invalid playlist data")
     @APIResponse(responseCode = "401", description = "Unauthorized")
     @RequestBody(description = "Playlist object with new song order")
+    @Timed(name = "changePlaylistSongOrder_timer", description = "How long the changePlaylistSongOrder endpoint takes")
     public Response changePlaylistSongOrder(@HeaderParam("Authorization") String authorizationHeader,
                                             @Parameter(required = true) @PathParam("playlistId") Long playlistId,
                                             PlaylistDTO playlistDTO) {
@@ -324,6 +599,37 @@ public class PlaylistController {
     }
 
 
+    /**
+     * Moves single songs within a playlist.
+     */
+    @PATCH
+    @Path("/{playlistId}/songOrder/moves")
+    @Consumes("application/json")
+    @Produces("application/json")
+    @Operation(summary = "Move songs", description = "Moves songs to other positions in the specified playlist. " +
+            "Moves are applied in the given order, so each one refers to the positions after the previous moves. " +
+            "Only the moved songs are written.")
+    @APIResponse(responseCode = "200", description = "Songs moved")
+    @APIResponse(responseCode = "400", description = "Invalid playlist ID or positions")
+    @APIResponse(responseCode = "401", description = "Unauthorized")
+    @RequestBody(description = "List of moves")
+    @Counted(name = "moveSongsCounter", description = "How many times songs were moved within a playlist")
+    @Timed(name = "moveSongsInPlaylist_timer", description = "How long the moveSongsInPlaylist endpoint takes")
+    public Response moveSongsInPlaylist(@HeaderParam("Authorization") String authorizationHeader,
+                                        @Parameter(required = true) @PathParam("playlistId") Long playlistId,
+                                        List<SongMoveDTO> moves) {
+        if (!userAccountService.isAuthorized(authorizationHeader)) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        PlaylistSummaryDTO edited = playlistService.moveSongsInPlaylist(playlistId, moves);
+        if (edited != null) {
+            return Response.ok().entity(edited).build();
+        }
+        return Response.status(Response.Status.BAD_REQUEST).entity("Invalid playlist ID or positions").build();
+    }
+
+
     /**
      * Updates the playlist name.
      */
@@ -336,6 +642,7 @@ public class PlaylistController {
     @APIResponse(responseCode = "400", description = "Invalid playlist ID or name")
     @APIResponse(responseCode = "401", description = "Unauthorized")
     @RequestBody(description = "New name for the playlist")
+    @Timed(name = "changePlaylistName_timer", description = "How long the changePlaylistName endpoint takes")
     public Response changePlaylistName(@HeaderParam("Authorization") String authorizationHeader,
                                        @Parameter(required = true) @PathParam("playlistId") Long playlistId,
                                        String newPlaylistName) {
@@ -360,6 +667,7 @@ public class PlaylistController {
     @APIResponse(responseCode = "400", description = "Invalid playlist ID or description")
     @APIResponse(responseCode = "401", description = "Unauthorized")
     @RequestBody(description = "New description for the playlist")
+    @Timed(name = "changePlaylistDescription_timer", description = "How long the changePlaylistDescription endpoint takes")
     public Response changePlaylistDescription(@HeaderParam("Authorization") String authorizationHeader,
                                               @Parameter(required = true) @PathParam("playlistId") Long playlistId,
                                               String newPlaylistDescription) {
@@ -384,6 +692,7 @@ public class PlaylistController {
     @APIResponse(responseCode = "400", description = "Invalid playlist ID or visibility value")
     @APIResponse(responseCode = "401", description = "Unauthorized")
     @RequestBody(description = "New visibility setting")
+    @Timed(name = "changePlaylistVisibility_timer", description = "How long the changePlaylistVisibility endpoint takes")
     public Response changePlaylistVisibility(@HeaderParam("Authorization") String authorizationHeader,
                                              @Parameter(required = true) @PathParam("playlistId") Long playlistId,
                                              Visibility visibility) {
@@ -408,6 +717,7 @@ public class PlaylistController {
     @APIResponse(responseCode = "400", description = "Invalid playlist ID or sorting value")
     @APIResponse(responseCode = "401", description = "Unauthorized")
     @RequestBody(description = "New sorting mode for the playlist")
+    @Timed(name = "changePlaylistSorting_timer", description = "How long the changePlaylistSorting endpoint takes")
     public Response changePlaylistSorting(@HeaderParam("Authorization") String authorizationHeader,
                                           @Parameter(required = true) @PathParam("playlistId") Long playlistId,
                                           Sorting sorting) {
@@ -427,29 +737,99 @@ public class PlaylistController {
     @Path("/{playlistId}/cover")
     @Produces("image/*")
     @Operation(summary = "Get playlist cover image", description = "Returns the cover file or an empty filen if " +
-            "playlist doesn't have a cover file."
+            "playlist doesn't have a cover file. The ETag is the content hash, so If-None-Match can be used to " +
+            "revalidate, and byte ranges are supported. URLs with the current version (v) may be cached forever. " +
+            "With a size the smallest resized variant that is at least that large is returned, or the original " +
+            "if there is none (yet)."
     )
     @APIResponse(responseCode = "200", description = "Playlist cover found")
+    @APIResponse(responseCode = "206", description = "Requested range of the playlist cover")
+    @APIResponse(responseCode = "304", description = "Playlist cover wasn't modified")
+    @APIResponse(responseCode = "400", description = "Invalid size")
     @APIResponse(responseCode = "404", description = "Invalid playlist ID or playlist doesn't have a cover file")
+    @APIResponse(responseCode = "416", description = "Requested range is outside the playlist cover")
     @APIResponse(responseCode = "401", description = "Unauthorized")
+    @Timed(name = "getPlaylistCover_timer", description = "How long the getPlaylistCover endpoint takes")
     public Response getPlaylistCover(@HeaderParam("Authorization") String authorizationHeader,
-                                     @Parameter(required = true) @PathParam("playlistId") Long playlistId) {
+                                     @Parameter(required = true) @PathParam("playlistId") Long playlistId,
+                                     @Parameter(description = "Version of the cover from its URL") @QueryParam("v") String version,
+                                     @Parameter(description = "Minimum length of the longer side in pixels", example = "256") @QueryParam("size") Integer size,
+                                     @HeaderParam("If-None-Match") String ifNoneMatch,
+                                     @HeaderParam("Range") String range,
+                                     @HeaderParam("If-Range") String ifRange) {
         if (!userAccountService.isAuthorized(authorizationHeader)) {
             return Response.status(Response.Status.UNAUTHORIZED).build();
         }
 
+        if (size != null && size <= 0) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Invalid size")
+                    .build();
+        }
+
         CoverFileEntity coverFile = playlistService.getPlaylistCover(playlistId);
 
-        if (coverFile != null && coverFile.getData() != null && coverFile.getData().length > 0) {
-            return Response.ok(new ByteArrayInputStream(coverFile.getData()))
-                    .type(coverFile.getContentType() != null ? coverFile.getContentType() : "application/octet-stream")
-                    .header("Content-Disposition", "inline; filename=\"cover_" + playlistId + "\"")
-                    .build();
-        } else {
+        if (coverFile == null || coverFile.getContentHash() == null) {
             return Response.status(Response.Status.NOT_FOUND)
                     .entity("Invalid playlist ID or playlist has no cover file")
                     .build();
         }
+
+        CoverVariantEntity variant = size != null ? coverStorage.findVariant(coverFile, size) : null;
+        String hash = variant != null ? variant.getContentHash() : coverFile.getContentHash();
+        String contentType = variant != null ? variant.getContentType() : coverFile.getContentType();
+        long fileSize = variant != null ? variant.getFileSize() : coverFile.getFileSize();
+
+        String etag = "\"" + hash + "\"";
+        // a versioned URL always points to the same image, other URLs have to be revalidated with the ETag,
+        // just like a missing variant, which may be created later
+        boolean isImmutable = version != null && version.equals(Mapper.toCoverVersion(coverFile.getContentHash()))
+                && (size == null || variant != null);
+        String cacheControl = isImmutable ? "private, max-age=31536000, immutable" : "private, no-cache";
+
+        if (matchesETag(ifNoneMatch, etag)) {
+            return Response.notModified()
+                    .header(ETAG_HEADER, etag)
+                    .header(CACHE_CONTROL_HEADER, cacheControl)
+                    .build();
+        }
+
+        // If-Range: the range is only valid for the version of the image the client already has
+        ByteRange byteRange = ifRange == null || ifRange.equals(etag) ? ByteRange.parse(range, fileSize) : null;
+        if (byteRange == ByteRange.UNSATISFIABLE) {
+            return Response.status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header("Content-Range", "bytes */" + fileSize)
+                    .build();
+        }
+
+        // files of the local blob store are sent by the server without copying them through the JVM
+        Optional<java.nio.file.Path> file = coverStorage.localPath(hash);
+        Response.ResponseBuilder response;
+        if (file.isPresent() && byteRange != null) {
+            response = Response.status(Response.Status.PARTIAL_CONTENT)
+                    .entity(new PathPart(file.get(), byteRange.start(), byteRange.length()))
+                    .header("Content-Range", byteRange.toContentRange(fileSize));
+        } else if (file.isPresent()) {
+            response = Response.ok(file.get());
+        } else {
+            try {
+                // streamed from the blob store and closed after the response, ranges aren't supported here
+                response = Response.ok(coverStorage.open(hash));
+            } catch (IOException e) {
+                logger.error("cover of playlist {} couldn't be read from the blob store: {}", playlistId, e.getMessage());
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity("Invalid playlist ID or playlist has no cover file")
+                        .build();
+            }
+        }
+
+        return response
+                .type(contentType != null ? contentType : "application/octet-stream")
+                .header(ETAG_HEADER, etag)
+                .header(CACHE_CONTROL_HEADER, cacheControl)
+                .header("Accept-Ranges", file.isPresent() ? "bytes" : "none")
+                .header("Content-Disposition", "inline; filename=\"cover_" + playlistId + "\"")
+                .build();
     }
 
 
@@ -461,20 +841,39 @@ public class PlaylistController {
     @Consumes("multipart/form-data")
     @Produces("application/json")
     @Operation(summary = "Change playlist cover image", description = "Replaces or sets a custom cover image for the specified playlist. " +
-            "If a previous cover exists, it will be replaced."
+            "If a previous cover exists, it will be replaced. JPEG, PNG, GIF and WebP images are supported, the type " +
+            "is detected from the content."
     )
     @APIResponse(responseCode = "200", description = "Cover image updated successfully")
     @APIResponse(responseCode = "400", description = "Invalid playlist ID or file format")
     @APIResponse(responseCode = "401", description = "Unauthorized")
+    @APIResponse(responseCode = "413", description = "Cover image is too large")
+    @Timed(name = "changePlaylistCover_timer", description = "How long the changePlaylistCover endpoint takes")
     public Response changePlaylistCover(@HeaderParam("Authorization") String authorizationHeader,
                                         @Parameter(required = true) @PathParam("playlistId") Long playlistId,
-                                        @RestForm("file") InputStream file,
-                                        @RestForm("file") String contentType) {
+                                        @RestForm("file") FileUpload file) {
         if (!userAccountService.isAuthorized(authorizationHeader)) {
             return Response.status(Response.Status.UNAUTHORIZED).build();
         }
 
-        PlaylistDTO edited = playlistService.changePlaylistCover(playlistId, file, contentType);
+        if (file == null) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Invalid playlist ID or cover file").build();
+        }
+        // the upload was already written to a temporary file while it was received, so it can be rejected
+        // before it is read again
+        if (file.size() > coverStorage.getMaxSize()) {
+            return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE)
+                    .entity("Cover image is larger than " + coverStorage.getMaxSize() + " bytes")
+                    .build();
+        }
+
+        PlaylistDTO edited;
+        try (InputStream in = Files.newInputStream(file.uploadedFile())) {
+            edited = playlistService.changePlaylistCover(playlistId, in);
+        } catch (IOException e) {
+            logger.error("uploaded cover of playlist {} couldn't be read: {}", playlistId, e.getMessage());
+            edited = null;
+        }
         return responseHelper(edited, "Invalid playlist ID or cover file");
     }
 
@@ -490,6 +889,7 @@ public class PlaylistController {
     @APIResponse(responseCode = "200", description = "Cover image deleted successfully")
     @APIResponse(responseCode = "400", description = "Invalid playlist ID")
     @APIResponse(responseCode = "401", description = "Unauthorized")
+    @Timed(name = "deletePlaylistCover_timer", description = "How long the deletePlaylistCover endpoint takes")
     public Response deletePlaylistCover(@HeaderParam("Authorization") String authorizationHeader,
                                         @Parameter(required = true) @PathParam("playlistId") Long playlistId) {
         if (!userAccountService.isAuthorized(authorizationHeader)) {
@@ -504,13 +904,30 @@ public class PlaylistController {
     @Path("/public")
     @Produces("application/json")
     @Operation(
-            summary = "Get all public playlists",
-            description = "Fetches all playlists that are marked as public. No authentication required."
+            summary = "Get public playlists",
+            description = "Fetches one page of playlists that are marked as public, ordered by ID. " +
+                    "The response is a list of playlists as before, the first 50 unless a limit is given. " +
+                    "If there are more, the ID to pass as 'after' for the next page is sent in the " +
+                    NEXT_AFTER_HEADER + " header. No authentication required."
     )
-    @APIResponse(responseCode = "200", description = "A list of public playlists")
+    @APIResponse(responseCode = "200", description = "A page of public playlists")
+    @APIResponse(responseCode = "400", description = "Invalid limit")
     @Counted(name = "getPublicPlaylists_counter", description = "How many times the public playlists endpoint was called")
-    public Response getPublicPlaylists() {
-        return Response.ok().entity(playlistService.getPublicPlaylists()).build();
+    @Timed(name = "getPublicPlaylists_timer", description = "How long the getPublicPlaylists endpoint takes")
+    public Response getPublicPlaylists(@Parameter(description = "ID of the last playlist of the previous page")
+                                       @QueryParam("after") Long after,
+                                       @Parameter(description = "maximum number of playlists (max. 500)")
+                                       @QueryParam("limit") @DefaultValue("50") int limit) {
+        List<PlaylistDTO> playlists = playlistService.getPublicPlaylists(after, limit);
+        if (playlists == null) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Invalid limit").build();
+        }
+
+        Response.ResponseBuilder response = Response.ok().entity(playlists);
+        if (playlists.size() == limit) {
+            response.header(NEXT_AFTER_HEADER, playlists.get(playlists.size() - 1).playlistId());
+        }
+        return response.build();
     }
 
     @GET
@@ -523,6 +940,7 @@ public class PlaylistController {
     @APIResponse(responseCode = "200", description = "The requested public playlist")
     @APIResponse(responseCode = "404", description = "Playlist not found or not public")
     @Counted(name = "getPublicPlaylists_counter", description = "How many times the public playlists endpoint was called")
+    @Timed(name = "getPublicPlaylist_timer", description = "How long the getPublicPlaylist endpoint takes")
     public Response getPublicPlaylist(@PathParam("id") Long playlistId) {
         var playlist = playlistService.getPlaylistDTO(playlistId);
         logger.debug("found playlist: {}", playlist);
@@ -532,6 +950,31 @@ public class PlaylistController {
         return Response.ok().entity(playlist).build();
     }
 
+    // writes the value directly to the response with the shared mapper, no intermediate String
+    private StreamingOutput streamJson(Object value, boolean pretty) {
+        ObjectWriter writer = jsonWriter(pretty);
+        return output -> writer.writeValue(output, value);
+    }
+
+    private ObjectWriter jsonWriter(boolean pretty) {
+        return (pretty ? objectMapper.writerWithDefaultPrettyPrinter() : objectMapper.writer())
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    // If-None-Match is a list of ETags or *, weak ETags match as well for GET requests
+    private static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     // helper function to reduce duplications
     private Response responseHelper(PlaylistDTO edited, String message){
         if(edited != null){
@@ -1,23 +1,70 @@
 package org.playlimana.controller;
 
 import jakarta.inject.Inject;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.metrics.annotation.Counted;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.playlimana.model.dto.PageDTO;
+import org.playlimana.model.dto.SongDTO;
+import org.playlimana.service.SongSearchService;
 import org.playlimana.service.SongService;
+import org.playlimana.service.UserAccountService;
 
 @Path("/song")
 public class SongController {
 
     SongService songService;
+    SongSearchService songSearchService;
+    UserAccountService userAccountService;
 
     @Inject
-    public SongController(SongService songService) {
+    public SongController(SongService songService, SongSearchService songSearchService,
+                          UserAccountService userAccountService) {
         this.songService = songService;
+        this.songSearchService = songSearchService;
+        this.userAccountService = userAccountService;
     }
 
     @GET
     public Response getSongs() {
         return Response.ok().entity("song").build();
     }
+
+    /**
+     * Searches all songs, the best matches first.
+     */
+    @GET
+    @Path("/search")
+    @Produces("application/json")
+    @Operation(summary = "Search songs", description = "Searches title, album, artists and genres of all songs "
+            + "and returns one page of the results ranked by relevance.")
+    @APIResponse(responseCode = "200", description = "A page of matching songs")
+    @APIResponse(responseCode = "400", description = "Empty or too long query or invalid page")
+    @APIResponse(responseCode = "401", description = "Unauthorized access")
+    @Counted(name = "searchSongs_counter", description = "How many times songs were searched")
+    public Response searchSongs(@HeaderParam("Authorization") String authorizationHeader,
+                                @Parameter(description = "words to search for (max. 200 characters)")
+                                @QueryParam("q") String query,
+                                @Parameter(description = "index of the page, starting at 0")
+                                @QueryParam("page") @DefaultValue("0") int page,
+                                @Parameter(description = "number of songs per page (max. 100)")
+                                @QueryParam("size") @DefaultValue("20") int size) {
+        if (!userAccountService.isAuthorized(authorizationHeader)) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        PageDTO<SongDTO> songs = songSearchService.searchSongs(query, page, size);
+        if (songs != null) {
+            return Response.ok().entity(songs).build();
+        }
+        return Response.status(Response.Status.BAD_REQUEST).entity("Invalid query or page").build();
+    }
 }
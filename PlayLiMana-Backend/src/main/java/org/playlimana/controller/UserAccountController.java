@@ -4,6 +4,7 @@ import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.metrics.annotation.Timed;
 import org.playlimana.auth.FirebaseTokenVerifier;
 import org.playlimana.model.dto.SaveServiceTokenDTO;
 import org.playlimana.service.UserAccountService;
@@ -34,6 +35,7 @@ public class UserAccountController {
 
     @POST
     @Path("/login")
+    @Timed(name = "login_timer", description = "How long the login endpoint takes")
     public Response login(LoginRequest req,
                           @HeaderParam("Authorization") String authHeader) {
         String idToken = extractToken(authHeader);
@@ -55,6 +57,7 @@ public class UserAccountController {
 
     @PUT
     @Path("/username")
+    @Timed(name = "updateUsername_timer", description = "How long the updateUsername endpoint takes")
     public Response updateUsername(NewUsernameRequest req,
                                    @HeaderParam("Authorization") String authHeader) {
         String idToken = extractToken(authHeader);
@@ -84,6 +87,7 @@ public class UserAccountController {
 
     @POST
     @Path("/save-service-token")
+    @Timed(name = "saveServiceToken_timer", description = "How long the saveServiceToken endpoint takes")
     public Response saveServiceToken(
             SaveServiceTokenDTO req,
             @HeaderParam("Authorization") String authHeader
@@ -95,6 +99,7 @@ public class UserAccountController {
 
     @DELETE
     @Path("/remove-service-token/{serviceName}")
+    @Timed(name = "removeServiceToken_timer", description = "How long the removeServiceToken endpoint takes")
     public Response removeServiceToken(
             @PathParam("serviceName") String serviceName,
             @HeaderParam("Authorization") String authHeader
@@ -106,6 +111,7 @@ public class UserAccountController {
 
     @GET
     @Path("/connected-services")
+    @Timed(name = "getConnectedServices_timer", description = "How long the getConnectedServices endpoint takes")
     public Response getConnectedServices(
             @HeaderParam("Authorization") String authHeader
     ) {
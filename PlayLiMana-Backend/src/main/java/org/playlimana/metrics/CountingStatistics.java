@@ -0,0 +1,42 @@
+package org.playlimana.metrics;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.internal.StatisticsImpl;
+
+/**
+ * Hibernate's statistics, which only count for the whole application, that additionally count for the current
+ * request. Only called while {@code quarkus.hibernate-orm.statistics} is enabled.
+ */
+public class CountingStatistics extends StatisticsImpl {
+
+    public CountingStatistics(SessionFactoryImplementor sessionFactory) {
+        super(sessionFactory);
+    }
+
+    @Override
+    public void prepareStatement() {
+        super.prepareStatement();
+        RequestStatistics request = RequestStatistics.current();
+        if (request != null) {
+            request.statementPrepared();
+        }
+    }
+
+    @Override
+    public void loadEntity(String entityName) {
+        super.loadEntity(entityName);
+        RequestStatistics request = RequestStatistics.current();
+        if (request != null) {
+            request.entityLoaded();
+        }
+    }
+
+    @Override
+    public void fetchCollection(String role) {
+        super.fetchCollection(role);
+        RequestStatistics request = RequestStatistics.current();
+        if (request != null) {
+            request.collectionFetched();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.playlimana.metrics;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.hibernate.stat.spi.StatisticsImplementor;
+
+/**
+ * Configured as {@code hibernate.stats.factory}, Hibernate creates its statistics with it.
+ */
+public class CountingStatisticsFactory implements StatisticsFactory {
+
+    @Override
+    public StatisticsImplementor buildStatistics(SessionFactoryImplementor sessionFactory) {
+        return new CountingStatistics(sessionFactory);
+    }
+}
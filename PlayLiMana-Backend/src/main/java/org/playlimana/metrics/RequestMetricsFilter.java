@@ -0,0 +1,117 @@
+package org.playlimana.metrics;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+
+/**
+ * Records the {@link RequestStatistics} of every request as histograms per endpoint, e.g.
+ * {@code application_request_statements{endpoint="PlaylistController.getPlaylists"}}, exported on /q/metrics.
+ * A response with a body is recorded once the body is written, so {@code application_request_duration} and the
+ * statements include the serialization, unlike {@code @Timed}, which stops when the resource method returns.
+ */
+@Provider
+public class RequestMetricsFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+    private static final String ENDPOINT_TAG = "endpoint";
+    // set by the response filter if the response has a body, the metrics are recorded after writing it
+    private static final String ENDPOINT_PROPERTY = RequestMetricsFilter.class.getName() + ".endpoint";
+
+    private static final Metadata DURATION = Metadata.builder()
+            .withName("request_duration")
+            .withDescription("Time from the start of the request until its response body is written")
+            .withUnit(MetricUnits.NANOSECONDS)
+            .build();
+
+    private static final Metadata STATEMENTS = Metadata.builder()
+            .withName("request_statements")
+            .withDescription("JDBC statements prepared by Hibernate per request")
+            .build();
+    private static final Metadata ENTITY_LOADS = Metadata.builder()
+            .withName("request_entity_loads")
+            .withDescription("Entities loaded from the database per request")
+            .build();
+    private static final Metadata COLLECTION_FETCHES = Metadata.builder()
+            .withName("request_collection_fetches")
+            .withDescription("Collections fetched from the database per request")
+            .build();
+    private static final Metadata TOKEN_VERIFICATION = Metadata.builder()
+            .withName("request_token_verification")
+            .withDescription("Time spent verifying Firebase tokens per request, cached tokens included")
+            .withUnit(MetricUnits.NANOSECONDS)
+            .build();
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    private final MetricRegistry metricRegistry;
+    private final RequestStatistics requestStatistics;
+
+    @Inject
+    public RequestMetricsFilter(MetricRegistry metricRegistry, RequestStatistics requestStatistics) {
+        this.metricRegistry = metricRegistry;
+        this.requestStatistics = requestStatistics;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        requestStatistics.started(System.nanoTime());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        Method method = resourceInfo.getResourceMethod();
+        // e.g. unknown paths or CORS preflight requests
+        if (method == null) {
+            return;
+        }
+
+        Tag endpoint = new Tag(ENDPOINT_TAG, method.getDeclaringClass().getSimpleName() + "." + method.getName());
+        if (responseContext.hasEntity()) {
+            requestContext.setProperty(ENDPOINT_PROPERTY, endpoint);
+        } else {
+            record(endpoint);
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        try {
+            context.proceed();
+        } finally {
+            if (context.getProperty(ENDPOINT_PROPERTY) instanceof Tag endpoint) {
+                record(endpoint);
+            }
+        }
+    }
+
+    private void record(Tag endpoint) {
+        if (requestStatistics.getStartNanos() != 0) {
+            metricRegistry.timer(DURATION, endpoint)
+                    .update(Duration.ofNanos(System.nanoTime() - requestStatistics.getStartNanos()));
+        }
+        metricRegistry.histogram(STATEMENTS, endpoint).update(requestStatistics.getStatements());
+        metricRegistry.histogram(ENTITY_LOADS, endpoint).update(requestStatistics.getEntityLoads());
+        metricRegistry.histogram(COLLECTION_FETCHES, endpoint).update(requestStatistics.getCollectionFetches());
+        // public endpoints don't verify tokens
+        if (requestStatistics.getTokenVerificationNanos() > 0) {
+            metricRegistry.timer(TOKEN_VERIFICATION, endpoint)
+                    .update(Duration.ofNanos(requestStatistics.getTokenVerificationNanos()));
+        }
+    }
+}
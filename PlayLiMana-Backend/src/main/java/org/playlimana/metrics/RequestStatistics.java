@@ -0,0 +1,84 @@
+package org.playlimana.metrics;
+
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ArcContainer;
+import io.quarkus.arc.ManagedContext;
+import jakarta.enterprise.context.RequestScoped;
+
+/**
+ * What a single request cost: JDBC statements, entity loads and collection fetches of Hibernate and the time spent
+ * verifying Firebase tokens. Recorded per endpoint by {@link RequestMetricsFilter}.
+ */
+@RequestScoped
+public class RequestStatistics {
+
+    // looked up once, the client proxy delegates to the bean of the current request
+    private static volatile RequestStatistics proxy;
+    private static volatile ManagedContext requestContext;
+
+    private long startNanos;
+    private long statements;
+    private long entityLoads;
+    private long collectionFetches;
+    private long tokenVerificationNanos;
+
+    /**
+     * Called for every statement Hibernate prepares, so after the first call this only costs the check whether
+     * a request is active and the context lookup of the client proxy, not a bean resolution.
+     *
+     * @return the statistics of the current request or {@code null} outside of a request, e.g. in startup observers
+     */
+    public static RequestStatistics current() {
+        ManagedContext context = requestContext;
+        if (context == null) {
+            ArcContainer container = Arc.container();
+            if (container == null) {
+                return null;
+            }
+            proxy = container.instance(RequestStatistics.class).get();
+            context = container.requestContext();
+            requestContext = context;
+        }
+        return context.isActive() ? proxy : null;
+    }
+
+    public void started(long nanos) {
+        startNanos = nanos;
+    }
+
+    public void statementPrepared() {
+        statements++;
+    }
+
+    public void entityLoaded() {
+        entityLoads++;
+    }
+
+    public void collectionFetched() {
+        collectionFetches++;
+    }
+
+    public void tokenVerified(long nanos) {
+        tokenVerificationNanos += nanos;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getEntityLoads() {
+        return entityLoads;
+    }
+
+    public long getCollectionFetches() {
+        return collectionFetches;
+    }
+
+    public long getTokenVerificationNanos() {
+        return tokenVerificationNanos;
+    }
+}
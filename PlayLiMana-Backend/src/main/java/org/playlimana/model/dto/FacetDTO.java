@@ -0,0 +1,13 @@
+package org.playlimana.model.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "DTO representing one artist or genre and how many songs have it")
+public record FacetDTO(
+
+        @Schema(description = "Name of the artist or genre", example = "Queen")
+        String name,
+
+        @Schema(description = "Number of songs with this artist or genre", example = "12")
+        int count
+) {}
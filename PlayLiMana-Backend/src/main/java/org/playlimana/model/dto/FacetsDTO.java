@@ -0,0 +1,18 @@
+package org.playlimana.model.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "DTO representing the artists and genres of the songs of a playlist or library")
+public record FacetsDTO(
+
+        @Schema(description = "Number of different songs", example = "250")
+        int numberOfSongs,
+
+        @Schema(description = "Artists with the most songs first")
+        List<FacetDTO> artists,
+
+        @Schema(description = "Genres with the most songs first")
+        List<FacetDTO> genres
+) {}
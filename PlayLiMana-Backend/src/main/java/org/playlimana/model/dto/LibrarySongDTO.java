@@ -0,0 +1,15 @@
+package org.playlimana.model.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "DTO representing a song of the user's library and the playlists that contain it")
+public record LibrarySongDTO(
+
+        @Schema(description = "The song, without a position")
+        SongDTO song,
+
+        @Schema(description = "Playlists of the library that contain the song")
+        List<SongLocationDTO> playlists
+) {}
@@ -0,0 +1,21 @@
+package org.playlimana.model.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "DTO representing one page of a larger result")
+public record PageDTO<T>(
+
+        @Schema(description = "Items on this page")
+        List<T> items,
+
+        @Schema(description = "Index of the page, starting at 0", example = "0")
+        int page,
+
+        @Schema(description = "Maximum number of items per page", example = "50")
+        int pageSize,
+
+        @Schema(description = "Total number of items over all pages", example = "1234")
+        long totalItems
+) {}
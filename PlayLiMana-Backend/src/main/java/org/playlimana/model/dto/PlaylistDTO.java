@@ -5,6 +5,7 @@ import org.playlimana.model.Sorting;
 import org.playlimana.model.Visibility;
 
 import java.util.List;
+import java.util.Map;
 
 @Schema(description = "DTO representing a playlist with metadata and songs")
 public record PlaylistDTO(
@@ -36,6 +37,10 @@ public record PlaylistDTO(
         @Schema(description = "URL of the cover image", example = "https://example.com/images/cover.jpg")
         String coverUrl,
 
+        @Schema(description = "URLs of resized versions of an uploaded cover by the length of their longer side in pixels, null for external covers",
+                example = "{\"64\": \"https://example.com/api/v1/playlists/123/cover?v=3fa405a8c1d2e4f5&size=64\"}")
+        Map<Integer, String> coverVariantUrls,
+
         @Schema(description = "Date the playlist was added to the library (yyyy-MM-dd'T'HH:mm:ss)", example = "2025-07-01T00:00:00")
         String addDate
 ) {}
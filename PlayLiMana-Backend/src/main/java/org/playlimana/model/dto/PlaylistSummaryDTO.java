@@ -0,0 +1,42 @@
+package org.playlimana.model.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.playlimana.model.Sorting;
+import org.playlimana.model.Visibility;
+
+import java.util.Map;
+
+@Schema(description = "DTO representing a playlist in a library without its songs")
+public record PlaylistSummaryDTO(
+
+        @Schema(description = "Unique ID of the playlist", example = "123")
+        long playlistId,
+
+        @Schema(description = "Name of the playlist", example = "Chill Vibes")
+        String playlistName,
+
+        @Schema(description = "Description of the playlist", example = "Relaxing tracks for the evening.")
+        String description,
+
+        @Schema(description = "Visibility of the playlist", example = "PRIVATE")
+        Visibility visibility,
+
+        @Schema(description = "Sorting mode of the playlist", example = "CUSTOM")
+        Sorting sorting,
+
+        @Schema(description = "Total number of songs in the playlist", example = "20")
+        int numberOfSongs,
+
+        @Schema(description = "Total playtime of the playlist in seconds", example = "5400")
+        long playtime,
+
+        @Schema(description = "URL of the cover image", example = "https://example.com/images/cover.jpg")
+        String coverUrl,
+
+        @Schema(description = "URLs of resized versions of an uploaded cover by the length of their longer side in pixels, null for external covers",
+                example = "{\"64\": \"https://example.com/api/v1/playlists/123/cover?v=3fa405a8c1d2e4f5&size=64\"}")
+        Map<Integer, String> coverVariantUrls,
+
+        @Schema(description = "Date the playlist was added to the library (yyyy-MM-dd'T'HH:mm:ss)", example = "2025-07-01T00:00:00")
+        String addDate
+) {}
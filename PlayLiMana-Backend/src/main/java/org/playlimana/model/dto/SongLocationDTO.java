@@ -0,0 +1,16 @@
+package org.playlimana.model.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "DTO representing where a song is in a playlist")
+public record SongLocationDTO(
+
+        @Schema(description = "Unique ID of the playlist", example = "123")
+        long playlistId,
+
+        @Schema(description = "Name of the playlist", example = "My Favorite Songs")
+        String playlistName,
+
+        @Schema(description = "Position of the song within the playlist", example = "5")
+        int positionInPlaylist
+) {}
@@ -0,0 +1,13 @@
+package org.playlimana.model.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "DTO representing a song being moved to another position within a playlist")
+public record SongMoveDTO(
+
+        @Schema(description = "Current position of the song", example = "12")
+        int from,
+
+        @Schema(description = "New position of the song", example = "0")
+        int to
+) {}
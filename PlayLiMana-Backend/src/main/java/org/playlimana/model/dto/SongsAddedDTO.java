@@ -0,0 +1,25 @@
+package org.playlimana.model.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "DTO representing the result of adding several songs to a playlist at once")
+public record SongsAddedDTO(
+
+        @Schema(description = "Unique ID of the playlist", example = "123")
+        long playlistId,
+
+        @Schema(description = "Positions of the added songs in the playlist, in the order they were sent", example = "[20, 21, 22]")
+        List<Integer> positions,
+
+        @Schema(description = "Indices of the sent songs that weren't added because they are invalid or already in the playlist",
+                example = "[1]")
+        List<Integer> skipped,
+
+        @Schema(description = "Total number of songs in the playlist", example = "22")
+        int numberOfSongs,
+
+        @Schema(description = "Total playtime of the playlist in seconds", example = "5400")
+        long playtime
+) {}
@@ -0,0 +1,29 @@
+package org.playlimana.model.entity;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+/**
+ * Number of stored blobs that aren't referenced yet, e.g. a cover upload whose transaction isn't committed.
+ * A blob is only deleted while its row is locked and has no leases, so a new lease waits until the blob is gone
+ * and the blob is stored again. Works across several instances of the application, they share the database.
+ */
+@Entity
+public class BlobLeaseEntity extends PanacheEntityBase {
+    @Id
+    @Column(length = 64)
+    private String contentHash;
+    private int leaseCount;
+
+    // deleted empty public constructor since it already exists implicitly (sonarqube)
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public int getLeaseCount() {
+        return leaseCount;
+    }
+}
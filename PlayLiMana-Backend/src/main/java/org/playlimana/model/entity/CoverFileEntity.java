@@ -4,13 +4,21 @@ import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
 import jakarta.persistence.*;
 
 @Entity
+@Table(indexes = @Index(name = "idx_cover_file_hash", columnList = "contentHash"))
 public class CoverFileEntity extends PanacheEntityBase {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long coverFileId;
-    @Lob
-    private byte[] data;
+    // the image itself is in the blob store, several covers can share one blob
+    @Column(length = 64)
+    private String contentHash;
+    private long fileSize;
     private String contentType; // z. B. "image/jpeg"
+    // covers from before the blob store, only read once to move them there and always null afterwards
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "data")
+    private byte[] legacyData;
     @OneToOne
     @JoinColumn(name = "playlist_id")
     private PlaylistEntity playlist;
@@ -21,12 +29,28 @@ public class CoverFileEntity extends PanacheEntityBase {
         return coverFileId;
     }
 
-    public byte[] getData() {
-        return data;
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public byte[] getLegacyData() {
+        return legacyData;
     }
 
-    public void setData(byte[] data) {
-        this.data = data;
+    public void clearLegacyData() {
+        this.legacyData = null;
     }
 
     public PlaylistEntity getPlaylist() {
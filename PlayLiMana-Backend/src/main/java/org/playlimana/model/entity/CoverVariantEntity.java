@@ -0,0 +1,73 @@
+package org.playlimana.model.entity;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.*;
+
+/**
+ * A resized version of a cover image. Variants belong to the image and not to a {@link CoverFileEntity},
+ * so covers that share a blob (e.g. copied playlists) also share their variants.
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_cover_variant_original", columnList = "originalHash, variantSize", unique = true),
+        @Index(name = "idx_cover_variant_hash", columnList = "contentHash")
+})
+public class CoverVariantEntity extends PanacheEntityBase {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long coverVariantId;
+    @Column(length = 64, nullable = false)
+    private String originalHash;
+    // length of the longer side in pixels
+    private int variantSize;
+    @Column(length = 64, nullable = false)
+    private String contentHash;
+    private long fileSize;
+    private String contentType;
+
+    // deleted empty public constructor since it already exists implicitly (sonarqube)
+
+    public Long getCoverVariantId() {
+        return coverVariantId;
+    }
+
+    public String getOriginalHash() {
+        return originalHash;
+    }
+
+    public void setOriginalHash(String originalHash) {
+        this.originalHash = originalHash;
+    }
+
+    public int getVariantSize() {
+        return variantSize;
+    }
+
+    public void setVariantSize(int variantSize) {
+        this.variantSize = variantSize;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+}
@@ -2,6 +2,7 @@ package org.playlimana.model.entity;
 
 import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.playlimana.model.Sorting;
 import org.playlimana.model.Visibility;
 
@@ -10,7 +11,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+// keyset pagination of public playlists filters by visibility and walks the IDs
+@Table(indexes = @Index(name = "idx_playlist_visibility_id", columnList = "visibility, playlist_id"))
 public class PlaylistEntity extends PanacheEntityBase {
+    // distance between the sort keys of neighbouring songs after renumbering
+    public static final int SORT_KEY_GAP = 1024;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "playlist_id")
@@ -23,10 +29,20 @@ public class PlaylistEntity extends PanacheEntityBase {
     private Visibility visibility;
     private Sorting sorting;
     @OneToMany(mappedBy = "playlist", cascade = CascadeType.ALL, orphanRemoval = true)
-    @OrderColumn(name = "playlist_order")
+    // sort keys can be the same after concurrent appends, the song ID keeps the positions stable
+    @OrderBy("sortKey, songInPlaylistKey.songId")
     private List<SongInPlaylistEntity> songs;
     @OneToMany(mappedBy = "playlist", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<PlaylistInLibraryEntity> inLibraries = new ArrayList<>();
+    // kept up to date on every change of songs so they can be read without loading the songs,
+    // only written on insert, changes are added in the database (PlaylistRepository.addSongAggregates)
+    // so concurrent requests don't overwrite each other
+    @ColumnDefault("0")
+    @Column(updatable = false)
+    private int numberOfSongs;
+    @ColumnDefault("0")
+    @Column(updatable = false)
+    private long totalPlaytime;
 
 
     public PlaylistEntity() {
@@ -39,6 +55,8 @@ public class PlaylistEntity extends PanacheEntityBase {
         this.coverUrl = playlistEntity.coverUrl;
         this.visibility = playlistEntity.visibility;
         this.sorting = playlistEntity.sorting;
+        this.numberOfSongs = playlistEntity.numberOfSongs;
+        this.totalPlaytime = playlistEntity.totalPlaytime;
         // sets empty list for songs so the playlist service can fill it with
         // new songInPlaylistEntities since the playlistId is also saved in these
         this.songs = new ArrayList<>();
@@ -91,7 +109,9 @@ public class PlaylistEntity extends PanacheEntityBase {
 
     public void setCoverFile(CoverFileEntity coverFile) {
         this.coverFile = coverFile;
-        coverFile.setPlaylist(this);
+        if (coverFile != null) {
+            coverFile.setPlaylist(this);
+        }
     }
 
     public Visibility getVisibility() {
@@ -116,6 +136,98 @@ public class PlaylistEntity extends PanacheEntityBase {
 
     public void setSongs(List<SongInPlaylistEntity> songs) {
         this.songs = songs;
+        recomputeSongAggregates();
+    }
+
+    public void addSong(SongInPlaylistEntity song) {
+        if (!songs.isEmpty() && !hasRoomAfter(songs.get(songs.size() - 1).getSortKey(), 1)) {
+            renumberSongs();
+        }
+        song.setSortKey(songs.isEmpty() ? 0 : songs.get(songs.size() - 1).getSortKey() + SORT_KEY_GAP);
+        songs.add(song);
+        numberOfSongs++;
+        totalPlaytime += song.getSong().getPlaytime();
+    }
+
+    /**
+     * Updates the aggregates for songs that were persisted directly instead of being added to the (unloaded) songs.
+     * Like all changes of the aggregates it is only kept in memory, the database is updated by
+     * {@code PlaylistRepository.addSongAggregates}.
+     */
+    public void addSongAggregates(int addedSongs, long addedPlaytime) {
+        numberOfSongs += addedSongs;
+        totalPlaytime += addedPlaytime;
+    }
+
+    public void removeSong(SongInPlaylistEntity song) {
+        if (songs.remove(song)) {
+            numberOfSongs--;
+            totalPlaytime -= song.getSong().getPlaytime();
+        }
+    }
+
+    public SongInPlaylistEntity removeSongAt(int position) {
+        SongInPlaylistEntity song = songs.remove(position);
+        numberOfSongs--;
+        totalPlaytime -= song.getSong().getPlaytime();
+        return song;
+    }
+
+    /**
+     * Moves a song to another position. Only the sort key of the moved song changes,
+     * unless there is no gap left between its new neighbours and the playlist has to be renumbered.
+     *
+     * @return {@code false} if one of the positions is out of range
+     */
+    public boolean moveSong(int from, int to) {
+        if (from < 0 || from >= songs.size() || to < 0 || to >= songs.size()) {
+            return false;
+        }
+        if (from == to) {
+            return true;
+        }
+
+        SongInPlaylistEntity moved = songs.remove(from);
+        songs.add(to, moved);
+
+        boolean hasBefore = to > 0;
+        boolean hasAfter = to < songs.size() - 1;
+        int before = hasBefore ? songs.get(to - 1).getSortKey() : 0;
+        int after = hasAfter ? songs.get(to + 1).getSortKey() : 0;
+
+        // repeated moves to the front or the end keep extending the keys, they are renumbered before they overflow
+        if (!hasBefore && after >= Integer.MIN_VALUE + SORT_KEY_GAP) {
+            moved.setSortKey(after - SORT_KEY_GAP);
+        } else if (!hasAfter && hasRoomAfter(before, 1)) {
+            moved.setSortKey(before + SORT_KEY_GAP);
+        } else if (hasBefore && hasAfter && (long) after - before > 1) {
+            moved.setSortKey((int) ((before + (long) after) / 2));
+        } else {
+            renumberSongs();
+        }
+        return true;
+    }
+
+    /**
+     * Whether the given number of songs can be appended with the usual gap after the sort key without leaving the
+     * int range, otherwise the playlist has to be {@link #renumberSongs() renumbered} first.
+     */
+    public static boolean hasRoomAfter(int sortKey, int numberOfSongs) {
+        return sortKey <= Integer.MAX_VALUE - (long) numberOfSongs * SORT_KEY_GAP;
+    }
+
+    public void renumberSongs() {
+        // songs whose key stays the same aren't dirty and don't cause an UPDATE
+        for (int i = 0; i < songs.size(); i++) {
+            songs.get(i).setSortKey(i * SORT_KEY_GAP);
+        }
+    }
+
+    public void recomputeSongAggregates() {
+        numberOfSongs = songs != null ? songs.size() : 0;
+        totalPlaytime = songs != null ? songs.stream()
+                .mapToLong(playlistSong -> playlistSong.getSong().getPlaytime())
+                .sum() : 0;
     }
 
     public List<PlaylistInLibraryEntity> getInLibraries() {
@@ -126,16 +238,12 @@ public class PlaylistEntity extends PanacheEntityBase {
         this.inLibraries = inLibraries;
     }
 
-    @Transient
     public int getNumberOfSongs() {
-        return songs != null ? songs.size() : 0;
+        return numberOfSongs;
     }
 
-    @Transient
     public long getPlaytime() {
-        return songs != null ? songs.stream()
-                .mapToLong(playlistSong -> playlistSong.getSong().getPlaytime())
-                .sum() : 0;
+        return totalPlaytime;
     }
 
     @Transient
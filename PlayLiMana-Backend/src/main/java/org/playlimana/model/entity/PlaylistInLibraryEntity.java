@@ -8,6 +8,8 @@ import org.playlimana.model.databasekey.PlaylistInLibraryKey;
 import java.time.LocalDateTime;
 
 @Entity
+// the primary key starts with the playlist, this one finds the library of a user
+@Table(indexes = @Index(name = "idx_playlist_in_library_account", columnList = "account_id, playlist_id"))
 public class PlaylistInLibraryEntity extends PanacheEntityBase {
 
     @EmbeddedId
@@ -4,12 +4,24 @@ import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
 import jakarta.persistence.*;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
+import org.playlimana.utils.SongIdentity;
 
 import java.time.LocalDate;
 import java.util.List;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_song_natural_key", columnList = "naturalKey", unique = true),
+        // sorted views of playlists, see PlaylistRepository.findOrder
+        @Index(name = "idx_song_title", columnList = "title"),
+        @Index(name = "idx_song_artist_sort", columnList = "artistSort"),
+        @Index(name = "idx_song_album", columnList = "album"),
+        @Index(name = "idx_song_release_date", columnList = "releaseDate"),
+        @Index(name = "idx_song_playtime", columnList = "playtime")
+})
 public class SongEntity extends PanacheEntityBase {
+    public static final int ARTIST_SORT_LENGTH = 255;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "song_id")
@@ -17,6 +29,9 @@ public class SongEntity extends PanacheEntityBase {
     private String title;
     @JdbcTypeCode(SqlTypes.JSON)
     private List<String> artists;
+    // first artist, the JSON column can't be sorted by, kept in sync with artists
+    @Column(length = ARTIST_SORT_LENGTH)
+    private String artistSort;
     private String album;
     @JdbcTypeCode(SqlTypes.JSON)
     private List<String> genres;
@@ -25,6 +40,9 @@ public class SongEntity extends PanacheEntityBase {
     @JdbcTypeCode(SqlTypes.JSON)
     private List<String> linksForWebPlayer;
     private String coverUrl;
+    // see SongIdentity, null for songs that existed before natural keys were introduced
+    @Column(length = SongIdentity.KEY_LENGTH)
+    private String naturalKey;
     @OneToMany(mappedBy = "song", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<SongInPlaylistEntity> playlists;
 
@@ -42,6 +60,7 @@ public class SongEntity extends PanacheEntityBase {
                       List<String> linksForWebPlayer) {
         this.title = title;
         this.artists = artists;
+        this.artistSort = toArtistSort(artists);
         this.album = album;
         this.genres = genres;
         this.playtime = playtime;
@@ -71,6 +90,23 @@ public class SongEntity extends PanacheEntityBase {
 
     public void setArtist(List<String> artists) {
         this.artists = artists;
+        this.artistSort = toArtistSort(artists);
+    }
+
+    public String getArtistSort() {
+        return artistSort;
+    }
+
+    /**
+     * @return the first artist, shortened to fit the column, or an empty string if there is none,
+     * so songs without artist aren't taken for songs from before the column existed
+     */
+    public static String toArtistSort(List<String> artists) {
+        if (artists == null || artists.isEmpty() || artists.get(0) == null) {
+            return "";
+        }
+        String firstArtist = artists.get(0);
+        return firstArtist.length() > ARTIST_SORT_LENGTH ? firstArtist.substring(0, ARTIST_SORT_LENGTH) : firstArtist;
     }
 
     public String getAlbum() {
@@ -124,4 +160,12 @@ public class SongEntity extends PanacheEntityBase {
     public void setCoverUrl(String coverUrl) {
         this.coverUrl = coverUrl;
     }
+
+    public String getNaturalKey() {
+        return naturalKey;
+    }
+
+    public void setNaturalKey(String naturalKey) {
+        this.naturalKey = naturalKey;
+    }
 }
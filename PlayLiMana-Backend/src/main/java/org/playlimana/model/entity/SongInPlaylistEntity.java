@@ -8,6 +8,11 @@ import org.playlimana.model.databasekey.SongInPlaylistKey;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_song_in_playlist_order", columnList = "playlist_id, playlist_order"),
+        // the primary key starts with the playlist, this one finds the playlists of a song
+        @Index(name = "idx_song_in_playlist_song", columnList = "song_id, playlist_id")
+})
 public class SongInPlaylistEntity extends PanacheEntityBase {
 
     @EmbeddedId
@@ -15,6 +20,10 @@ public class SongInPlaylistEntity extends PanacheEntityBase {
 
     private LocalDateTime addDate;
 
+    // sparse ordering key, songs are sorted by it but there are gaps so a song can be moved by changing only its own key
+    @Column(name = "playlist_order")
+    private int sortKey;
+
     @ManyToOne
     @MapsId("playlistId")
     @JoinColumn(name = "playlist_id", nullable = false)
@@ -51,6 +60,14 @@ public class SongInPlaylistEntity extends PanacheEntityBase {
         this.addDate = addDate;
     }
 
+    public int getSortKey() {
+        return sortKey;
+    }
+
+    public void setSortKey(int sortKey) {
+        this.sortKey = sortKey;
+    }
+
     public PlaylistEntity getPlaylist() {
         return playlist;
     }
@@ -0,0 +1,57 @@
+package org.playlimana.model.repository;
+
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.LockModeType;
+import org.hibernate.Session;
+import org.playlimana.model.entity.BlobLeaseEntity;
+
+@ApplicationScoped
+public class BlobLeaseRepository implements PanacheRepositoryBase<BlobLeaseEntity, String> {
+
+    /**
+     * Inserts a row without leases unless the blob already has one.
+     */
+    public void insertIfAbsent(String contentHash) {
+        getEntityManager().unwrap(Session.class).createMutationQuery(
+                        "insert into BlobLeaseEntity (contentHash, leaseCount) values (:contentHash, 0) " +
+                                "on conflict (contentHash) do nothing")
+                .setParameter("contentHash", contentHash)
+                .executeUpdate();
+    }
+
+    /**
+     * Adds a lease. Waits while the row is locked by a transaction that deletes the blob.
+     *
+     * @return {@code false} if there is no row, e.g. because it was deleted together with the blob
+     */
+    public boolean increment(String contentHash) {
+        return getEntityManager().createQuery(
+                        "update BlobLeaseEntity l set l.leaseCount = l.leaseCount + 1 where l.contentHash = :contentHash")
+                .setParameter("contentHash", contentHash)
+                .executeUpdate() > 0;
+    }
+
+    /**
+     * Removes a lease and the row once it has none left.
+     */
+    public void decrement(String contentHash) {
+        getEntityManager().createQuery(
+                        "update BlobLeaseEntity l set l.leaseCount = l.leaseCount - 1 " +
+                                "where l.contentHash = :contentHash and l.leaseCount > 0")
+                .setParameter("contentHash", contentHash)
+                .executeUpdate();
+        getEntityManager().createQuery(
+                        "delete from BlobLeaseEntity l where l.contentHash = :contentHash and l.leaseCount = 0")
+                .setParameter("contentHash", contentHash)
+                .executeUpdate();
+    }
+
+    /**
+     * Locks the row of a blob until the end of the transaction, the row is created if it doesn't exist.
+     */
+    public BlobLeaseEntity lock(String contentHash) {
+        insertIfAbsent(contentHash);
+        return getEntityManager().find(BlobLeaseEntity.class, contentHash, LockModeType.PESSIMISTIC_WRITE);
+    }
+}
@@ -4,6 +4,26 @@ import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import org.playlimana.model.entity.CoverFileEntity;
 
+import java.util.List;
+
 @ApplicationScoped
 public class CoverFileRepository implements PanacheRepository<CoverFileEntity> {
+
+    public long countByHash(String contentHash) {
+        return count("contentHash", contentHash);
+    }
+
+    /**
+     * Cover files that still have their image in the database instead of the blob store, ordered by id.
+     *
+     * @param afterId only ids after this one, for the next batch
+     */
+    public List<Long> findIdsWithoutHash(long afterId, int limit) {
+        return getEntityManager().createQuery(
+                        "select c.coverFileId from CoverFileEntity c where c.contentHash is null " +
+                                "and c.coverFileId > :afterId order by c.coverFileId", Long.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
 }
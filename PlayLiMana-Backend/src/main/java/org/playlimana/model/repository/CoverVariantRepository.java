@@ -0,0 +1,44 @@
+package org.playlimana.model.repository;
+
+import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.playlimana.model.entity.CoverVariantEntity;
+
+import java.util.List;
+
+@ApplicationScoped
+public class CoverVariantRepository implements PanacheRepository<CoverVariantEntity> {
+
+    /**
+     * The smallest variant of an image that is at least as large as requested.
+     *
+     * @return the variant or {@code null} if there is none, e.g. because the image is smaller
+     */
+    public CoverVariantEntity findVariant(String originalHash, int minSize) {
+        return find("originalHash = ?1 and variantSize >= ?2 order by variantSize", originalHash, minSize)
+                .firstResult();
+    }
+
+    public List<CoverVariantEntity> findByOriginalHash(String originalHash) {
+        return list("originalHash", originalHash);
+    }
+
+    public long countByOriginalHash(String originalHash) {
+        return count("originalHash", originalHash);
+    }
+
+    public long countByHash(String contentHash) {
+        return count("contentHash", contentHash);
+    }
+
+    /**
+     * Images of covers that don't have any variants yet, e.g. because they were uploaded before variants existed.
+     */
+    public List<String> findHashesWithoutVariants() {
+        return getEntityManager().createQuery(
+                        "select distinct c.contentHash from CoverFileEntity c where c.contentHash is not null "
+                                + "and not exists (select 1 from CoverVariantEntity v where v.originalHash = c.contentHash)",
+                        String.class)
+                .getResultList();
+    }
+}
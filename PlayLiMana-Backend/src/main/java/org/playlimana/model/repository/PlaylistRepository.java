@@ -2,8 +2,306 @@ package org.playlimana.model.repository;
 
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import org.playlimana.model.Sorting;
+import org.playlimana.model.Visibility;
 import org.playlimana.model.entity.PlaylistEntity;
+import org.playlimana.model.entity.PlaylistInLibraryEntity;
+import org.playlimana.model.entity.SongInPlaylistEntity;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 @ApplicationScoped
 public class PlaylistRepository implements PanacheRepository<PlaylistEntity> {
+
+    /**
+     * Keyset pagination over public playlists ordered by ID, with their cover files, songs and song entities.
+     * The page is selected by ID first, because a limit together with fetched songs would be applied in memory.
+     *
+     * @param after ID of the last playlist of the previous page or {@code null} for the first page
+     * @param limit maximum number of playlists to return
+     */
+    public List<PlaylistEntity> findPublicPageWithSongs(Long after, int limit) {
+        List<Long> playlistIds = getEntityManager().createQuery(
+                        "select p.playlistId from PlaylistEntity p " +
+                                "where p.visibility = :visibility and p.playlistId > :after " +
+                                "order by p.playlistId", Long.class)
+                .setParameter("visibility", Visibility.PUBLIC)
+                .setParameter("after", after != null ? after : 0L)
+                .setMaxResults(limit)
+                .getResultList();
+        if (playlistIds.isEmpty()) {
+            return List.of();
+        }
+        return getEntityManager().createQuery(
+                        "select distinct p from PlaylistEntity p left join fetch p.coverFile " +
+                                "left join fetch p.songs sip left join fetch sip.song " +
+                                "where p.playlistId in :playlistIds order by p.playlistId", PlaylistEntity.class)
+                .setParameter("playlistIds", playlistIds)
+                .getResultList();
+    }
+
+    /**
+     * Loads a playlist together with its cover file, its songs and the song entities in one query.
+     *
+     * @return the playlist or {@code null} if it doesn't exist
+     */
+    public PlaylistEntity findByIdWithSongs(Long playlistId) {
+        return getEntityManager().createQuery(
+                        "select p from PlaylistEntity p left join fetch p.coverFile " +
+                                "left join fetch p.songs sip left join fetch sip.song " +
+                                "where p.playlistId = :playlistId", PlaylistEntity.class)
+                .setParameter("playlistId", playlistId)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Loads the library of a user with its playlists and their cover files, but without songs.
+     */
+    public List<PlaylistInLibraryEntity> findLibrary(String uid) {
+        return getEntityManager().createQuery(
+                        "select pil from PlaylistInLibraryEntity pil join fetch pil.playlist p " +
+                                "left join fetch p.coverFile where pil.userAccount.uid = :uid",
+                        PlaylistInLibraryEntity.class)
+                .setParameter("uid", uid)
+                .getResultList();
+    }
+
+    /**
+     * Loads the library of a user with its playlists, their cover files, songs and song entities in one query.
+     */
+    public List<PlaylistInLibraryEntity> findLibraryWithSongs(String uid) {
+        return getEntityManager().createQuery(
+                        "select distinct pil from PlaylistInLibraryEntity pil join fetch pil.playlist p " +
+                                "left join fetch p.coverFile left join fetch p.songs sip left join fetch sip.song " +
+                                "where pil.userAccount.uid = :uid", PlaylistInLibraryEntity.class)
+                .setParameter("uid", uid)
+                .getResultList();
+    }
+
+    public boolean isInLibrary(Long playlistId, String uid) {
+        return getEntityManager().createQuery(
+                        "select count(pil) from PlaylistInLibraryEntity pil " +
+                                "where pil.playlist.playlistId = :playlistId and pil.userAccount.uid = :uid", Long.class)
+                .setParameter("playlistId", playlistId)
+                .setParameter("uid", uid)
+                .getSingleResult() > 0;
+    }
+
+    /**
+     * Loads the songs of a playlist with the given song IDs, including the songs themselves.
+     * The result isn't in any particular order.
+     */
+    public List<SongInPlaylistEntity> findSongsBySongIds(Long playlistId, Collection<Long> songIds) {
+        return getEntityManager().createQuery(
+                        "select sip from SongInPlaylistEntity sip join fetch sip.song " +
+                                "where sip.playlist.playlistId = :playlistId and sip.song.songId in :songIds",
+                        SongInPlaylistEntity.class)
+                .setParameter("playlistId", playlistId)
+                .setParameter("songIds", songIds)
+                .getResultList();
+    }
+
+    /**
+     * Song IDs and sort keys of all songs of a playlist in the given order. Songs with the same value are in
+     * playlist order, songs with the same sort key are ordered by their ID.
+     *
+     * @return rows of song ID and sort key
+     */
+    public List<Object[]> findOrder(Long playlistId, Sorting sorting) {
+        return getEntityManager().createQuery(
+                        "select s.songId, sip.sortKey from SongInPlaylistEntity sip join sip.song s " +
+                                "where sip.playlist.playlistId = :playlistId order by " + orderBy(sorting),
+                        Object[].class)
+                .setParameter("playlistId", playlistId)
+                .getResultList();
+    }
+
+    private static String orderBy(Sorting sorting) {
+        return switch (sorting) {
+            case TITLE -> "s.title nulls last, sip.sortKey, s.songId";
+            // songs without artist have an empty artist, they come last like missing values of the other sortings
+            case ARTIST -> "nullif(s.artistSort, '') nulls last, sip.sortKey, s.songId";
+            // songs added at once share their add date, the one with the higher key was added later
+            case RECENTLY_ADDED -> "sip.addDate desc nulls last, sip.sortKey desc, s.songId desc";
+            case RELEASE_DATE -> "s.releaseDate desc nulls last, sip.sortKey, s.songId";
+            case PLAYTIME -> "s.playtime, sip.sortKey, s.songId";
+            case ALBUM -> "s.album nulls last, sip.sortKey, s.songId";
+            case CUSTOM -> "sip.sortKey, s.songId";
+        };
+    }
+
+    /**
+     * @return the highest sort key of a playlist or {@code null} if it has no songs
+     */
+    public Integer findMaxSortKey(Long playlistId) {
+        return getEntityManager().createQuery(
+                        "select max(sip.sortKey) from SongInPlaylistEntity sip where sip.playlist.playlistId = :playlistId",
+                        Integer.class)
+                .setParameter("playlistId", playlistId)
+                .getSingleResult();
+    }
+
+    /**
+     * IDs of all songs of a playlist in playlist order, the index in the list is the position of the song.
+     * Songs with the same sort key are ordered by their ID like in {@link PlaylistEntity#getSongs()}.
+     */
+    public List<Long> findSongIdsInOrder(Long playlistId) {
+        return getEntityManager().createQuery(
+                        "select sip.song.songId from SongInPlaylistEntity sip " +
+                                "where sip.playlist.playlistId = :playlistId order by sip.sortKey, sip.song.songId",
+                        Long.class)
+                .setParameter("playlistId", playlistId)
+                .getResultList();
+    }
+
+    public Set<Long> findSongIds(Long playlistId) {
+        return new HashSet<>(getEntityManager().createQuery(
+                        "select sip.song.songId from SongInPlaylistEntity sip where sip.playlist.playlistId = :playlistId",
+                        Long.class)
+                .setParameter("playlistId", playlistId)
+                .getResultList());
+    }
+
+    /**
+     * IDs of the songs in all playlists of a user's library, every song once.
+     */
+    public List<Long> findLibrarySongIds(String uid) {
+        return getEntityManager().createQuery(
+                        "select distinct sip.song.songId from SongInPlaylistEntity sip " +
+                                "join PlaylistInLibraryEntity pil on pil.playlist = sip.playlist " +
+                                "where pil.userAccount.uid = :uid", Long.class)
+                .setParameter("uid", uid)
+                .getResultList();
+    }
+
+    /**
+     * Playlists of a user's library that contain the given songs, with the position of the song in each.
+     * Positions are numbered by a window function over each of these playlists in playlist order (sort key, then
+     * song ID), so every playlist is read once instead of counting the songs before each match.
+     *
+     * @return rows of song ID, playlist ID, playlist name and position ordered by playlist ID
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findSongLocations(String uid, Collection<Long> songIds) {
+        List<Object[]> rows = getEntityManager().createNativeQuery(
+                        "select ranked.song_id, p.playlist_id, p.playlistName, ranked.song_position " +
+                                "from (select sip.song_id, sip.playlist_id, row_number() over (" +
+                                "partition by sip.playlist_id order by sip.playlist_order, sip.song_id) - 1 as song_position " +
+                                "from SongInPlaylistEntity sip where sip.playlist_id in (" +
+                                "select o.playlist_id from SongInPlaylistEntity o " +
+                                "join PlaylistInLibraryEntity pil on pil.playlist_id = o.playlist_id " +
+                                "where pil.account_id = :uid and o.song_id in (:songIds))) ranked " +
+                                "join PlaylistEntity p on p.playlist_id = ranked.playlist_id " +
+                                "where ranked.song_id in (:songIds) " +
+                                "order by p.playlist_id")
+                .setParameter("uid", uid)
+                .setParameter("songIds", songIds)
+                .getResultList();
+        // native results are typed by the JDBC driver, the service expects the same types as before
+        for (Object[] row : rows) {
+            row[0] = ((Number) row[0]).longValue();
+            row[1] = ((Number) row[1]).longValue();
+            row[3] = ((Number) row[3]).longValue();
+        }
+        return rows;
+    }
+
+    /**
+     * Deletes the given songs from a playlist in a single statement. Songs are deleted by their primary key,
+     * sort keys aren't unique because concurrent appends can assign the same key twice.
+     * Bypasses the persistence context, so loaded song collections of this playlist are stale afterwards.
+     *
+     * @return number of deleted songs
+     */
+    public int deleteSongs(Long playlistId, Collection<Long> songIds) {
+        return getEntityManager().createQuery(
+                        "delete from SongInPlaylistEntity sip " +
+                                "where sip.playlist.playlistId = :playlistId and sip.song.songId in :songIds")
+                .setParameter("playlistId", playlistId)
+                .setParameter("songIds", songIds)
+                .executeUpdate();
+    }
+
+    /**
+     * Copies all songs of a playlist to another playlist with one INSERT ... SELECT, keeping add dates and order.
+     *
+     * @return number of copied songs
+     */
+    public int copySongs(Long fromPlaylistId, Long toPlaylistId) {
+        return getEntityManager().createNativeQuery(
+                        "insert into SongInPlaylistEntity (playlist_id, song_id, addDate, playlist_order) " +
+                                "select :toPlaylistId, song_id, addDate, playlist_order " +
+                                "from SongInPlaylistEntity where playlist_id = :fromPlaylistId")
+                .setParameter("toPlaylistId", toPlaylistId)
+                .setParameter("fromPlaylistId", fromPlaylistId)
+                .executeUpdate();
+    }
+
+    /**
+     * Copies the cover file of a playlist to another playlist, both share the image in the blob store.
+     *
+     * @return number of copied cover files (0 or 1)
+     */
+    public int copyCoverFile(Long fromPlaylistId, Long toPlaylistId) {
+        return getEntityManager().createNativeQuery(
+                        "insert into CoverFileEntity (contentHash, fileSize, contentType, data, playlist_id) " +
+                                "select contentHash, fileSize, contentType, data, :toPlaylistId " +
+                                "from CoverFileEntity where playlist_id = :fromPlaylistId")
+                .setParameter("toPlaylistId", toPlaylistId)
+                .setParameter("fromPlaylistId", fromPlaylistId)
+                .executeUpdate();
+    }
+
+    /**
+     * Adds to number of songs and playtime of a playlist in one statement, so concurrent changes all count.
+     * The values are negative when songs are removed.
+     */
+    public void addSongAggregates(Long playlistId, int addedSongs, long addedPlaytime) {
+        getEntityManager().createQuery(
+                        "update PlaylistEntity p set p.numberOfSongs = p.numberOfSongs + :addedSongs, " +
+                                "p.totalPlaytime = p.totalPlaytime + :addedPlaytime " +
+                                "where p.playlistId = :playlistId")
+                .setParameter("addedSongs", addedSongs)
+                .setParameter("addedPlaytime", addedPlaytime)
+                .setParameter("playlistId", playlistId)
+                .executeUpdate();
+    }
+
+    /**
+     * Recomputes number of songs and playtime of a playlist in the database, e.g. after bulk changes of its songs.
+     */
+    public void refreshSongAggregates(Long playlistId) {
+        getEntityManager().createQuery(
+                        "update PlaylistEntity p set " +
+                                "p.numberOfSongs = (select cast(count(sip) as Integer) " +
+                                "from SongInPlaylistEntity sip where sip.playlist = p), " +
+                                "p.totalPlaytime = (select coalesce(sum(sip.song.playtime), 0L) " +
+                                "from SongInPlaylistEntity sip where sip.playlist = p) " +
+                                "where p.playlistId = :playlistId")
+                .setParameter("playlistId", playlistId)
+                .executeUpdate();
+    }
+
+    /**
+     * Fills in number of songs and playtime for playlists whose aggregates were never computed,
+     * e.g. because they were created before these columns existed.
+     *
+     * @return number of updated playlists
+     */
+    public int backfillSongAggregates() {
+        return getEntityManager().createQuery(
+                        "update PlaylistEntity p set " +
+                                "p.numberOfSongs = (select cast(count(sip) as Integer) " +
+                                "from SongInPlaylistEntity sip where sip.playlist = p), " +
+                                "p.totalPlaytime = (select coalesce(sum(sip.song.playtime), 0L) " +
+                                "from SongInPlaylistEntity sip where sip.playlist = p) " +
+                                "where p.numberOfSongs = 0 " +
+                                "and exists (select 1 from SongInPlaylistEntity sip where sip.playlist = p)")
+                .executeUpdate();
+    }
 }
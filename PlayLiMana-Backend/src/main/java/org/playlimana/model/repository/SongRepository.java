@@ -1,9 +1,212 @@
 package org.playlimana.model.repository;
 
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import io.quarkus.panache.common.Parameters;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.Query;
+import org.hibernate.Session;
+import org.hibernate.query.MutationQuery;
 import org.playlimana.model.entity.SongEntity;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 @ApplicationScoped
 public class SongRepository implements PanacheRepository<SongEntity> {
+
+    // 10 parameters per song, stays far below the bind parameter limit of the database
+    private static final int INSERT_CHUNK_SIZE = 500;
+    // values per IN list, stays below the bind parameter limit of the database
+    private static final int LOOKUP_CHUNK_SIZE = 1_000;
+
+    // searched text of a song, the index expressions and the queries have to use exactly the same expression
+    private static final String SEARCH_DOCUMENT = "(coalesce(title, '') || ' ' || coalesce(album, '') || ' ' || "
+            + "coalesce(cast(artists as text), '') || ' ' || coalesce(cast(genres as text), ''))";
+    private static final String SEARCH_VECTOR = "to_tsvector('simple', " + SEARCH_DOCUMENT + ")";
+    private static final String SEARCH_QUERY = "websearch_to_tsquery('simple', :query)";
+    // whole words are found by the text search, parts of words and misspelled words by trigram similarity
+    private static final String SEARCH_CONDITION = "(" + SEARCH_VECTOR + " @@ " + SEARCH_QUERY
+            + " or :query <% " + SEARCH_DOCUMENT + ")";
+    // songs in any playlist of a user's library, uses the indexes on account_id and song_id of the join tables
+    private static final String IN_LIBRARY = " and song_id in (select sip.song_id from SongInPlaylistEntity sip "
+            + "join PlaylistInLibraryEntity pil on pil.playlist_id = sip.playlist_id where pil.account_id = :uid)";
+    // searches the same fields as the full text search, artists and genres in the text of their JSON columns
+    private static final String LIKE_CONDITION = "(lower(title) like :pattern escape '!' "
+            + "or lower(album) like :pattern escape '!' or lower(cast(artists as String)) like :pattern escape '!' "
+            + "or lower(cast(genres as String)) like :pattern escape '!')";
+    private static final String LIKE_IN_LIBRARY = " and songId in (select sip.song.songId from SongInPlaylistEntity sip "
+            + "join PlaylistInLibraryEntity pil on pil.playlist = sip.playlist where pil.userAccount.uid = :uid)";
+
+    public SongEntity findByNaturalKey(String naturalKey) {
+        return find("naturalKey", naturalKey).firstResult();
+    }
+
+    public List<SongEntity> findByNaturalKeys(Collection<String> naturalKeys) {
+        return listInChunks("naturalKey in ?1", naturalKeys);
+    }
+
+    public List<SongEntity> findByIds(Collection<Long> songIds) {
+        return listInChunks("songId in ?1", songIds);
+    }
+
+    // long IN lists are split into several queries, so the number of bind parameters per statement stays bounded
+    private <T> List<SongEntity> listInChunks(String query, Collection<T> values) {
+        List<T> valueList = values instanceof List<T> list ? list : new ArrayList<>(values);
+        if (valueList.size() <= LOOKUP_CHUNK_SIZE) {
+            return list(query, valueList);
+        }
+        List<SongEntity> songs = new ArrayList<>(valueList.size());
+        for (int from = 0; from < valueList.size(); from += LOOKUP_CHUNK_SIZE) {
+            songs.addAll(list(query, valueList.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, valueList.size()))));
+        }
+        return songs;
+    }
+
+    /**
+     * Inserts the songs with multi-row INSERT statements and skips every song whose natural key already exists,
+     * e.g. because another request created it in the meantime.
+     * The rows are written directly, so the given entities stay transient and have to be loaded afterwards.
+     *
+     * @return number of inserted songs
+     */
+    public int insertIgnoringConflicts(List<SongEntity> songs) {
+        int inserted = 0;
+        for (int from = 0; from < songs.size(); from += INSERT_CHUNK_SIZE) {
+            List<SongEntity> chunk = songs.subList(from, Math.min(from + INSERT_CHUNK_SIZE, songs.size()));
+
+            StringBuilder hql = new StringBuilder("insert into SongEntity (title, artists, artistSort, album, genres, " +
+                    "playtime, releaseDate, linksForWebPlayer, coverUrl, naturalKey) values ");
+            for (int i = 0; i < chunk.size(); i++) {
+                if (i > 0) {
+                    hql.append(", ");
+                }
+                hql.append("(:title").append(i).append(", :artists").append(i)
+                        .append(", :artistSort").append(i).append(", :album").append(i)
+                        .append(", :genres").append(i).append(", :playtime").append(i)
+                        .append(", :releaseDate").append(i).append(", :links").append(i)
+                        .append(", :coverUrl").append(i).append(", :naturalKey").append(i).append(')');
+            }
+            hql.append(" on conflict (naturalKey) do nothing");
+
+            MutationQuery query = getEntityManager().unwrap(Session.class).createMutationQuery(hql.toString());
+            for (int i = 0; i < chunk.size(); i++) {
+                SongEntity song = chunk.get(i);
+                query.setParameter("title" + i, song.getTitle())
+                        .setParameter("artists" + i, song.getArtists())
+                        .setParameter("artistSort" + i, song.getArtistSort())
+                        .setParameter("album" + i, song.getAlbum())
+                        .setParameter("genres" + i, song.getGenres())
+                        .setParameter("playtime" + i, song.getPlaytime())
+                        .setParameter("releaseDate" + i, song.getReleaseDate())
+                        .setParameter("links" + i, song.getLinksForWebPlayer())
+                        .setParameter("coverUrl" + i, song.getCoverUrl())
+                        .setParameter("naturalKey" + i, song.getNaturalKey());
+            }
+            inserted += query.executeUpdate();
+        }
+        return inserted;
+    }
+
+    /**
+     * Songs that were created before natural keys existed, used to fill in their keys, ordered by ID.
+     *
+     * @param afterSongId only songs after this ID, for the next chunk
+     */
+    public List<SongEntity> findWithoutNaturalKey(long afterSongId, int limit) {
+        return find("naturalKey is null and songId > ?1 order by songId", afterSongId).range(0, limit - 1).list();
+    }
+
+    /**
+     * Songs that were created before the first artist was stored for sorting, ordered by ID.
+     *
+     * @param afterSongId only songs after this ID, for the next chunk
+     */
+    public List<SongEntity> findWithoutArtistSort(long afterSongId, int limit) {
+        return find("artistSort is null and songId > ?1 order by songId", afterSongId).range(0, limit - 1).list();
+    }
+
+    /**
+     * ID, artists and genres of the songs after the given ID, without loading the whole entities.
+     *
+     * @return rows of song ID, artists and genres ordered by song ID
+     */
+    public List<Object[]> findArtistsAndGenres(long afterSongId, int limit) {
+        return getEntityManager().createQuery(
+                        "select s.songId, s.artists, s.genres from SongEntity s where s.songId > :afterSongId " +
+                                "order by s.songId", Object[].class)
+                .setParameter("afterSongId", afterSongId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Creates the indexes for {@link #searchFullText}, only works with PostgreSQL.
+     * Trigram similarity needs the pg_trgm extension, so the database user must be allowed to create it.
+     */
+    public void createSearchIndexes() {
+        getEntityManager().createNativeQuery("create extension if not exists pg_trgm").executeUpdate();
+        getEntityManager().createNativeQuery("create index if not exists idx_song_search on SongEntity "
+                + "using gin (" + SEARCH_VECTOR + ")").executeUpdate();
+        getEntityManager().createNativeQuery("create index if not exists idx_song_search_trigram on SongEntity "
+                + "using gin (" + SEARCH_DOCUMENT + " gin_trgm_ops)").executeUpdate();
+    }
+
+    /**
+     * Searches title, album, artists and genres with the full text and trigram indexes of PostgreSQL.
+     * The tests run on H2 and only cover {@link #searchLike}, changes to this query have to be tried
+     * against PostgreSQL, e.g. the database of docker-compose.dev.yml.
+     *
+     * @param uid only songs in the library of this user, all songs if {@code null}
+     * @return IDs of one page of matching songs, the best match first
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> searchFullText(String query, String uid, int page, int pageSize) {
+        Query nativeQuery = getEntityManager().createNativeQuery(
+                        "select song_id from SongEntity where " + SEARCH_CONDITION + (uid != null ? IN_LIBRARY : "")
+                                + " order by ts_rank(" + SEARCH_VECTOR + ", " + SEARCH_QUERY + ") desc, "
+                                + "word_similarity(:query, " + SEARCH_DOCUMENT + ") desc, song_id")
+                .setParameter("query", query)
+                .setFirstResult(Math.multiplyExact(page, pageSize))
+                .setMaxResults(pageSize);
+        if (uid != null) {
+            nativeQuery.setParameter("uid", uid);
+        }
+        List<Number> songIds = nativeQuery.getResultList();
+        return songIds.stream().map(Number::longValue).toList();
+    }
+
+    public long countFullText(String query, String uid) {
+        Query nativeQuery = getEntityManager().createNativeQuery(
+                        "select count(*) from SongEntity where " + SEARCH_CONDITION + (uid != null ? IN_LIBRARY : ""))
+                .setParameter("query", query);
+        if (uid != null) {
+            nativeQuery.setParameter("uid", uid);
+        }
+        return ((Number) nativeQuery.getSingleResult()).longValue();
+    }
+
+    /**
+     * Search for databases without full text search, e.g. H2 in tests. Finds parts of title, album and
+     * first artist, songs whose title matches first.
+     *
+     * @param pattern a LIKE pattern in lower case, with ! as escape character
+     * @param uid     only songs in the library of this user, all songs if {@code null}
+     */
+    public List<SongEntity> searchLike(String pattern, String uid, int page, int pageSize) {
+        return find(LIKE_CONDITION + (uid != null ? LIKE_IN_LIBRARY : "")
+                        + " order by case when lower(title) like :pattern escape '!' then 0 else 1 end, title, songId",
+                likeParameters(pattern, uid))
+                .page(page, pageSize)
+                .list();
+    }
+
+    public long countLike(String pattern, String uid) {
+        return count(LIKE_CONDITION + (uid != null ? LIKE_IN_LIBRARY : ""), likeParameters(pattern, uid));
+    }
+
+    private static Parameters likeParameters(String pattern, String uid) {
+        Parameters parameters = Parameters.with("pattern", pattern);
+        return uid != null ? parameters.and("uid", uid) : parameters;
+    }
 }
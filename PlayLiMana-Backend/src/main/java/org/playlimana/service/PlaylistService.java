@@ -1,31 +1,50 @@
 package org.playlimana.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import org.playlimana.auth.UserProvider;
 import org.playlimana.model.Sorting;
 import org.playlimana.model.Visibility;
+import org.playlimana.model.dto.FacetsDTO;
+import org.playlimana.model.dto.PageDTO;
 import org.playlimana.model.dto.PlaylistDTO;
+import org.playlimana.model.dto.PlaylistSummaryDTO;
 import org.playlimana.model.dto.SongDTO;
+import org.playlimana.model.dto.SongMoveDTO;
+import org.playlimana.model.dto.SongsAddedDTO;
 import org.playlimana.model.entity.*;
 import org.playlimana.model.repository.CoverFileRepository;
 import org.playlimana.model.repository.PlaylistRepository;
+import org.playlimana.service.SortedSongIndex.SongOrder;
+import org.playlimana.storage.CoverStorage;
+import org.playlimana.storage.StagedCover;
+import org.playlimana.utils.LongHashSet;
 import org.playlimana.utils.Mapper;
+import org.playlimana.utils.PlaylistJson;
+import org.playlimana.validation.PlaylistTextValidator;
+import org.playlimana.validation.ValidationResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 @ApplicationScoped
 public class PlaylistService {
@@ -35,20 +54,30 @@ public class PlaylistService {
     private final PlaylistRepository playlistRepository;
     private final CoverFileRepository coverFileRepository;
     private final SongService songService;
-
-    private static final String VALID_CHARACTERS_REGEX = "^[\\p{L}\\p{N} _\\-\\.\\u2000-\\u206F\\u2B50\\u2600-\\u26FF]*$";
-    private static final int MAX_LEN_NAME = 100;
-    private static final int MAX_LEN_DESCRIPTION = 250;
+    private final CoverStorage coverStorage;
+    private final PlaylistTextValidator textValidator;
+    private final SortedSongIndex sortedSongIndex;
+    private final SongFacetIndex songFacetIndex;
+
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_BATCH_SIZE = 10_000;
+    private static final int MAX_FACETS = 500;
     private final UserProvider userProvider;
 
     @Inject
     public PlaylistService(PlaylistRepository playlistRepository,
                            CoverFileRepository coverFileRepository,
-                           SongService songService, UserProvider userProvider) {
+                           SongService songService, UserProvider userProvider,
+                           CoverStorage coverStorage, PlaylistTextValidator textValidator,
+                           SortedSongIndex sortedSongIndex, SongFacetIndex songFacetIndex) {
         this.playlistRepository = playlistRepository;
         this.coverFileRepository = coverFileRepository;
         this.songService = songService;
         this.userProvider = userProvider;
+        this.coverStorage = coverStorage;
+        this.textValidator = textValidator;
+        this.sortedSongIndex = sortedSongIndex;
+        this.songFacetIndex = songFacetIndex;
     }
 
     @Transactional
@@ -61,9 +90,10 @@ public class PlaylistService {
             return new ArrayList<>();
         }
 
-        List<PlaylistDTO> playlistDTOS = new ArrayList<>();
+        List<PlaylistInLibraryEntity> library = playlistRepository.findLibraryWithSongs(user.getUid());
+        List<PlaylistDTO> playlistDTOS = new ArrayList<>(library.size());
 
-        for (PlaylistInLibraryEntity pil : user.getPlaylistsInLibrary()) {
+        for (PlaylistInLibraryEntity pil : library) {
             playlistDTOS.add(Mapper.toPlaylistDTO(pil.getPlaylist(), pil.getAddDate()));
         }
 
@@ -71,25 +101,163 @@ public class PlaylistService {
         return playlistDTOS;
     }
 
+    /**
+     * Like {@link #getPlaylists()}, but the playlists are serialized straight from their entities,
+     * which are completely fetched by the query. Has to be called while the response is written: the JSON is
+     * streamed to the output inside this transaction, so the library is never held in memory as a whole.
+     * The database connection is held until the response is written.
+     */
     @Transactional
     @WithSpan
-    public String getLibrary() {
-        List<PlaylistDTO> playlists = getPlaylists();
+    public void writePlaylistsJson(ObjectWriter writer, OutputStream output) throws IOException {
+        UserAccountEntity user = userProvider.getUser();
 
-        try {
-            ObjectWriter ow = new ObjectMapper().writer().withDefaultPrettyPrinter();
-            // immediately returning the value instead of assigning it to a variable with no other use (sonarqube)
-            return ow.writeValueAsString(playlists);
-        } catch (JsonProcessingException e) {
-            logger.error("library couldn't be processed as JSON: {}", e.getMessage());
-            return "";
+        if (user == null) {
+            logger.info("Not logged in, no library");
+            writer.writeValue(output, List.of());
+            return;
+        }
+
+        List<PlaylistInLibraryEntity> library = playlistRepository.findLibraryWithSongs(user.getUid());
+        List<PlaylistJson> playlists = new ArrayList<>(library.size());
+
+        for (PlaylistInLibraryEntity pil : library) {
+            playlists.add(new PlaylistJson(pil.getPlaylist(), pil.getAddDate()));
         }
+
+        logger.info("library contains {} playlists", playlists.size());
+        writer.writeValue(output, playlists);
     }
 
     @Transactional
     @WithSpan
-    public PlaylistDTO getPlaylistDTO(Long playlistId) {
+    public List<PlaylistSummaryDTO> getLibrarySummary() {
+        UserAccountEntity user = userProvider.getUser();
+
+        if (user == null) {
+            logger.info("Not logged in, no library");
+            return new ArrayList<>();
+        }
+
+        List<PlaylistInLibraryEntity> library = playlistRepository.findLibrary(user.getUid());
+        List<PlaylistSummaryDTO> summaries = new ArrayList<>(library.size());
+        for (PlaylistInLibraryEntity pil : library) {
+            summaries.add(Mapper.toPlaylistSummaryDTO(pil.getPlaylist(), pil.getAddDate()));
+        }
+
+        logger.info("library summary contains {} playlists", summaries.size());
+        return summaries;
+    }
+
+    /**
+     * One page of a playlist's songs in the given order. The order is cached as sort keys, so only the songs of
+     * the page are loaded. Every song keeps its position in the playlist, even if the page is sorted differently.
+     *
+     * @param sorting the order, the sorting of the playlist if {@code null}
+     */
+    @Transactional
+    @WithSpan
+    public PageDTO<SongDTO> getPlaylistSongs(Long playlistId, Sorting sorting, int page, int pageSize) {
+        // the index of the first song has to fit into an int
+        if (page < 0 || pageSize < 1 || pageSize > MAX_PAGE_SIZE || (long) page * pageSize > Integer.MAX_VALUE) {
+            logger.error("songs of playlist {} couldn't be loaded because page {} with size {} is invalid",
+                    playlistId, page, pageSize);
+            return null;
+        }
+
         PlaylistEntity playlist = getPlaylist(playlistId);
+        if (isAccessToPlaylistDenied(playlist)) {
+            logger.error("songs of playlist {} couldn't be loaded because access is denied", playlistId);
+            return null;
+        }
+
+        if (sorting == null) {
+            sorting = playlist.getSorting() != null ? playlist.getSorting() : Sorting.CUSTOM;
+        }
+        // the custom order is sorted by sort key and song ID, the index of a song is its position
+        SongOrder customOrder = getSongOrder(playlistId, Sorting.CUSTOM);
+        SongOrder order = sorting == Sorting.CUSTOM ? customOrder : getSongOrder(playlistId, sorting);
+
+        int from = Math.min(page * pageSize, order.size());
+        int to = Math.min(from + pageSize, order.size());
+        List<Long> pageSongIds = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            pageSongIds.add(order.songIds()[i]);
+        }
+
+        List<SongDTO> songDTOs = new ArrayList<>(pageSongIds.size());
+        if (!pageSongIds.isEmpty()) {
+            Map<Long, SongInPlaylistEntity> sipsBySongId = new HashMap<>();
+            for (SongInPlaylistEntity sip : playlistRepository.findSongsBySongIds(playlistId, pageSongIds)) {
+                sipsBySongId.put(sip.getSong().getSongId(), sip);
+            }
+            for (Long songId : pageSongIds) {
+                SongInPlaylistEntity sip = sipsBySongId.get(songId);
+                int position = sip != null ? customOrder.indexOfCustom(sip.getSortKey(), songId) : -1;
+                // missing if the songs were changed concurrently while the orders were loaded
+                if (position >= 0) {
+                    songDTOs.add(Mapper.toSongDTO(sip.getSong(), position, sip.getAddDate()));
+                }
+            }
+        }
+
+        return new PageDTO<>(songDTOs, page, pageSize, order.size());
+    }
+
+    /**
+     * Artists and genres of all songs in the user's library, every song is counted once.
+     *
+     * @param limit maximum number of artists and of genres
+     * @return the facets or {@code null} if the user isn't logged in or the limit is invalid
+     */
+    @Transactional
+    @WithSpan
+    public FacetsDTO getLibraryFacets(int limit) {
+        UserAccountEntity user = userProvider.getUser();
+        if (user == null || limit < 1 || limit > MAX_FACETS) {
+            logger.error("facets of library couldn't be loaded because user is not logged in or limit {} is invalid",
+                    limit);
+            return null;
+        }
+
+        return toFacets(playlistRepository.findLibrarySongIds(user.getUid()), limit);
+    }
+
+    /**
+     * Artists and genres of the songs of a playlist.
+     *
+     * @param limit maximum number of artists and of genres
+     * @return the facets or {@code null} if access is denied or the limit is invalid
+     */
+    @Transactional
+    @WithSpan
+    public FacetsDTO getPlaylistFacets(Long playlistId, int limit) {
+        if (limit < 1 || limit > MAX_FACETS) {
+            logger.error("facets of playlist {} couldn't be loaded because limit {} is invalid", playlistId, limit);
+            return null;
+        }
+
+        if (isAccessToPlaylistDenied(getPlaylist(playlistId))) {
+            logger.error("facets of playlist {} couldn't be loaded because access is denied", playlistId);
+            return null;
+        }
+
+        return toFacets(playlistRepository.findSongIds(playlistId), limit);
+    }
+
+    private FacetsDTO toFacets(Collection<Long> songIds, int limit) {
+        LongHashSet songIdSet = new LongHashSet(songIds.size());
+        for (Long songId : songIds) {
+            songIdSet.add(songId);
+        }
+        return new FacetsDTO(songIdSet.size(), songFacetIndex.countArtists(songIdSet, limit),
+                songFacetIndex.countGenres(songIdSet, limit));
+    }
+
+    @Transactional
+    @WithSpan
+    public PlaylistDTO getPlaylistDTO(Long playlistId) {
+        PlaylistEntity playlist = getPlaylistWithSongs(playlistId);
 
         // added condition to prevent NullPointerException (sonarqube)
         if (isAccessToPlaylistDenied(playlist)) {
@@ -100,6 +268,34 @@ public class PlaylistService {
     }
 
 
+    /**
+     * Whether the playlist exists and the user may read it, checked before its JSON is streamed.
+     */
+    @Transactional
+    public boolean isPlaylistReadable(Long playlistId) {
+        return !isAccessToPlaylistDenied(getPlaylist(playlistId));
+    }
+
+    /**
+     * Like {@link #getPlaylistDTO(Long)}, but the playlist is streamed straight from its entities to the output
+     * inside this transaction, see {@link #writePlaylistsJson}.
+     * Writes {@code null} if the playlist was deleted since {@link #isPlaylistReadable} was checked.
+     */
+    @Transactional
+    @WithSpan
+    public void writePlaylistJson(Long playlistId, ObjectWriter writer, OutputStream output) throws IOException {
+        PlaylistEntity playlist = getPlaylistWithSongs(playlistId);
+
+        if (isAccessToPlaylistDenied(playlist)) {
+            logger.error("playlist {} couldn't be written because it was deleted or access is denied", playlistId);
+            writer.writeValue(output, null);
+            return;
+        }
+        writer.writeValue(output, new PlaylistJson(playlist,
+                Objects.requireNonNull(playlist).getAddDate(userProvider.getUser())));
+    }
+
+
     @Transactional
     @WithSpan
     public PlaylistDTO createPlaylist(PlaylistDTO playlistDTO) {
@@ -110,17 +306,24 @@ public class PlaylistService {
             return null;
         }
 
+        if (playlistDTO.songs() != null && playlistDTO.songs().size() > MAX_BATCH_SIZE) {
+            logger.error("playlist {} couldn't be created because it has more than {} songs",
+                    playlistDTO.playlistName(), MAX_BATCH_SIZE);
+            return null;
+        }
+
         UserAccountEntity user = userProvider.getUser();
         if (user == null) {
             logger.error("Playlist {} couldn't be created because user is not logged in", playlistDTO.playlistName());
             return null;
         }
 
-        for (SongDTO song : playlistDTO.songs()) {
-            songService.createSong(song); // make sure that all songs exist in database
-        }
+        // resolves or creates all songs at once, the playlist references the returned managed entities
+        List<SongEntity> songEntities = playlistDTO.songs() != null
+                ? songService.createSongs(playlistDTO.songs())
+                : List.of();
 
-        PlaylistEntity playlistEntity = Mapper.toPlaylistEntity(playlistDTO);
+        PlaylistEntity playlistEntity = Mapper.toPlaylistEntity(playlistDTO, songEntities);
         playlistRepository.persist(playlistEntity);
         LocalDateTime addDate = persistPilRelation(playlistEntity, user);
         logger.info("Playlist {} created", playlistDTO.playlistName());
@@ -129,7 +332,7 @@ public class PlaylistService {
 
     @Transactional
     @WithSpan
-    public PlaylistDTO copyPlaylist(Long originalPlaylistId) {
+    public PlaylistSummaryDTO copyPlaylist(Long originalPlaylistId) {
         PlaylistEntity originalPlaylist = getPlaylist(originalPlaylistId);
 
         // added condition playlist != null to prevent NullPointerException (sonarqube)
@@ -145,16 +348,17 @@ public class PlaylistService {
             copy = new PlaylistEntity(originalPlaylist);
             playlistRepository.persist(copy); // gives copy an ID
 
-            for (SongInPlaylistEntity sip : originalPlaylist.getSongs()) {
-                SongInPlaylistEntity newRelation
-                        = new SongInPlaylistEntity(sip.getAddDate(), copy, sip.getSong());
-                copy.getSongs().add(newRelation);
+            // songs and cover are copied inside the database, so the copy costs the same for every playlist length,
+            // number of songs and playtime were already taken over from the original
+            int copiedSongs = playlistRepository.copySongs(originalPlaylistId, copy.getPlaylistId());
+            if (playlistRepository.copyCoverFile(originalPlaylistId, copy.getPlaylistId()) > 0) {
+                playlistRepository.getEntityManager().refresh(copy); // picks up the copied cover
             }
 
             LocalDateTime addDate = persistPilRelation(copy, userProvider.getUser());
-            logger.info("playlist {} with ID {} was copied to ID {}",
-                    originalPlaylist.getPlaylistName(), originalPlaylistId, copy.getPlaylistId());
-            return Mapper.toPlaylistDTO(copy, addDate);
+            logger.info("playlist {} with ID {} was copied to ID {} with {} songs",
+                    originalPlaylist.getPlaylistName(), originalPlaylistId, copy.getPlaylistId(), copiedSongs);
+            return Mapper.toPlaylistSummaryDTO(copy, addDate);
         } else {
             logger.error("Playlist was null");
             return null;
@@ -173,7 +377,9 @@ public class PlaylistService {
             return false;
         }
 
-        playlistRepository.delete(playlistEntity); // SongInPlaylist and PlaylistInLibrary entities are deleted automatically
+        coverStorage.release(playlistEntity.getCoverFile());
+        sortedSongIndex.invalidate(playlistId);
+        playlistRepository.delete(playlistEntity); // SongInPlaylist, PlaylistInLibrary and cover file entities are deleted automatically
         logger.info("playlist {} was deleted", playlistEntity.getPlaylistName());
         return true;
     }
@@ -235,7 +441,7 @@ public class PlaylistService {
             return null;
         }
 
-        PlaylistEntity playlistEntity = getPlaylist(playlistId);
+        PlaylistEntity playlistEntity = getPlaylistWithSongs(playlistId);
 
         if (isAccessToPlaylistDenied(playlistEntity)) {
             logger.error("playlist couldn't be edited because access is denied");
@@ -266,7 +472,7 @@ public class PlaylistService {
     @Transactional
     @WithSpan
     public PlaylistDTO addSongToPlaylist(Long playlistId, SongDTO songDTO) {
-        PlaylistEntity playlistEntity = getPlaylist(playlistId);
+        PlaylistEntity playlistEntity = getPlaylistWithSongs(playlistId);
 
         if (isAccessToPlaylistDenied(playlistEntity) || songDTO == null) {
             logger.error("song couldn't be added to playlist because access is denied or song doesn't exist");
@@ -276,32 +482,98 @@ public class PlaylistService {
         SongEntity songEntity = songService.createSong(songDTO); // gets song if it exists or creates song before returning it
         SongInPlaylistEntity newRelation
                 = new SongInPlaylistEntity(LocalDateTime.now(), playlistEntity, songEntity);
-        playlistEntity.getSongs().add(newRelation);
+        playlistEntity.addSong(newRelation);
+        playlistRepository.addSongAggregates(playlistId, 1, songEntity.getPlaytime());
+        sortedSongIndex.invalidate(playlistId);
         logger.info("song {} was added to playlist {}", songEntity.getTitle(), playlistEntity.getPlaylistName());
         return Mapper.toPlaylistDTO(playlistEntity, playlistEntity.getAddDate(userProvider.getUser()));
     }
 
 
+    /**
+     * Appends several songs to a playlist in one transaction. The songs of the playlist aren't loaded,
+     * the new rows are persisted directly so Hibernate can send them as JDBC batches.
+     */
     @Transactional
     @WithSpan
-    public PlaylistDTO removeSongFromPlaylist(Long playlistId, Long songId, int songPositionInPlaylist) {
+    public SongsAddedDTO addSongsToPlaylist(Long playlistId, List<SongDTO> songDTOs) {
+        if (songDTOs == null || songDTOs.isEmpty() || songDTOs.size() > MAX_BATCH_SIZE) {
+            logger.error("songs couldn't be added to playlist with ID {} because no or too many songs were sent",
+                    playlistId);
+            return null;
+        }
+
         PlaylistEntity playlistEntity = getPlaylist(playlistId);
 
+        if (isAccessToPlaylistDenied(playlistEntity)) {
+            logger.error("songs couldn't be added to playlist with ID {} because access is denied", playlistId);
+            return null;
+        }
+
+        Set<Long> songIdsInPlaylist = playlistRepository.findSongIds(playlistId);
+        Integer maxSortKey = playlistRepository.findMaxSortKey(playlistId);
+        if (maxSortKey != null && !PlaylistEntity.hasRoomAfter(maxSortKey, songDTOs.size())) {
+            // the keys of the new songs would overflow, the existing songs start at 0 again
+            playlistEntity.renumberSongs();
+            playlistRepository.flush();
+            maxSortKey = (playlistEntity.getSongs().size() - 1) * PlaylistEntity.SORT_KEY_GAP;
+        }
+        int sortKey = maxSortKey != null ? maxSortKey + PlaylistEntity.SORT_KEY_GAP : 0;
+        int position = songIdsInPlaylist.size();
+
+        List<SongEntity> songEntities = songService.createSongs(songDTOs);
+        List<Integer> positions = new ArrayList<>(songEntities.size());
+        List<Integer> skipped = new ArrayList<>();
+        long addedPlaytime = 0;
+        LocalDateTime addDate = LocalDateTime.now();
+
+        for (int i = 0; i < songEntities.size(); i++) {
+            SongEntity songEntity = songEntities.get(i);
+            // a song can only be in a playlist once
+            if (songEntity == null || !songIdsInPlaylist.add(songEntity.getSongId())) {
+                skipped.add(i);
+                continue;
+            }
+            SongInPlaylistEntity newRelation = new SongInPlaylistEntity(addDate, playlistEntity, songEntity);
+            newRelation.setSortKey(sortKey);
+            playlistRepository.getEntityManager().persist(newRelation);
+            sortKey += PlaylistEntity.SORT_KEY_GAP;
+            positions.add(position++);
+            addedPlaytime += songEntity.getPlaytime();
+        }
+        playlistEntity.addSongAggregates(positions.size(), addedPlaytime);
+        playlistRepository.addSongAggregates(playlistId, positions.size(), addedPlaytime);
+        sortedSongIndex.invalidate(playlistId);
+
+        logger.info("{} songs were added to playlist {}, {} were skipped",
+                positions.size(), playlistEntity.getPlaylistName(), skipped.size());
+        return new SongsAddedDTO(playlistEntity.getPlaylistId(), positions, skipped,
+                playlistEntity.getNumberOfSongs(), playlistEntity.getPlaytime());
+    }
+
+
+    @Transactional
+    @WithSpan
+    public PlaylistDTO removeSongFromPlaylist(Long playlistId, Long songId, int songPositionInPlaylist) {
+        PlaylistEntity playlistEntity = getPlaylistWithSongs(playlistId);
+
         if (isAccessToPlaylistDenied(playlistEntity) || songId == null) {
             logger.error("song with ID {} couldn't be removed from playlist with ID {} because " +
                     "access is denied or song doesn't exist", songId, playlistId);
             return null;
         }
 
-        Optional<SongInPlaylistEntity> songToRemove = playlistEntity.getSongs().stream()
-                .filter(sip -> sip.getSong().getSongId().equals(songId)
-                        && playlistEntity.getSongs().indexOf(sip) == songPositionInPlaylist)
-                .findFirst();
+        // direct access by position, the song ID only guards against removing the wrong song
+        List<SongInPlaylistEntity> songs = playlistEntity.getSongs();
+        boolean isSongAtPosition = songPositionInPlaylist >= 0 && songPositionInPlaylist < songs.size()
+                && songs.get(songPositionInPlaylist).getSong().getSongId().equals(songId);
 
-        if (songToRemove.isPresent()) {
-            playlistEntity.getSongs().remove(songToRemove.get());
+        if (isSongAtPosition) {
+            SongInPlaylistEntity songToRemove = playlistEntity.removeSongAt(songPositionInPlaylist);
+            playlistRepository.addSongAggregates(playlistId, -1, -songToRemove.getSong().getPlaytime());
+            sortedSongIndex.invalidate(playlistId);
             logger.info("song {} was removed from playlist {}",
-                    songToRemove.get().getSong().getTitle(), playlistEntity.getPlaylistName());
+                    songToRemove.getSong().getTitle(), playlistEntity.getPlaylistName());
             return Mapper.toPlaylistDTO(playlistEntity, playlistEntity.getAddDate(userProvider.getUser()));
         } else {
             logger.warn("song with ID {} wasn't removed fom playlist {} because it didn't contain the song",
@@ -311,6 +583,45 @@ public class PlaylistService {
     }
 
 
+    @Transactional
+    @WithSpan
+    public PlaylistSummaryDTO removeSongsFromPlaylist(Long playlistId, List<Integer> positions) {
+        if (positions == null || positions.isEmpty() || positions.size() > MAX_BATCH_SIZE) {
+            logger.error("songs couldn't be removed from playlist with ID {} because no or too many positions were sent",
+                    playlistId);
+            return null;
+        }
+
+        PlaylistEntity playlistEntity = getPlaylist(playlistId);
+
+        if (isAccessToPlaylistDenied(playlistEntity)) {
+            logger.error("songs couldn't be removed from playlist with ID {} because access is denied", playlistId);
+            return null;
+        }
+
+        // only the song IDs are loaded, not the songs, positions are resolved to the primary keys of the rows
+        List<Long> songIds = playlistRepository.findSongIdsInOrder(playlistId);
+        Set<Long> songIdsToRemove = new HashSet<>();
+        for (Integer position : positions) {
+            if (position == null || position < 0 || position >= songIds.size()) {
+                logger.error("songs couldn't be removed from playlist with ID {} because position {} is invalid",
+                        playlistId, position);
+                return null;
+            }
+            songIdsToRemove.add(songIds.get(position));
+        }
+
+        // sort keys are sparse, so the remaining songs keep their keys and nothing has to be compacted
+        int removed = playlistRepository.deleteSongs(playlistId, songIdsToRemove);
+        playlistRepository.refreshSongAggregates(playlistId);
+        playlistRepository.getEntityManager().refresh(playlistEntity);
+        sortedSongIndex.invalidate(playlistId);
+
+        logger.info("{} songs were removed from playlist {}", removed, playlistEntity.getPlaylistName());
+        return Mapper.toPlaylistSummaryDTO(playlistEntity, playlistEntity.getAddDate(userProvider.getUser()));
+    }
+
+
     @Transactional
     @WithSpan
     public PlaylistDTO changePlaylistSongOrder(Long playlistId, PlaylistDTO playlistDTO) {
@@ -324,7 +635,7 @@ public class PlaylistService {
             return null;
         }
 
-        PlaylistEntity playlistEntity = getPlaylist(playlistId);
+        PlaylistEntity playlistEntity = getPlaylistWithSongs(playlistId);
 
         if (isAccessToPlaylistDenied(playlistEntity)) {
             logger.error("couldn't change song order of playlist with ID {}" +
@@ -332,24 +643,80 @@ public class PlaylistService {
             return null;
         }
 
-        PlaylistEntity playlistWithNewOrder = Mapper.toPlaylistEntity(playlistDTO);
+        List<SongDTO> newOrder = playlistDTO.songs() != null ? playlistDTO.songs() : List.of();
 
         if (playlistEntity.getSongs().size() != playlistDTO.numberOfSongs()
-                || playlistEntity.getSongs().size() != playlistWithNewOrder.getSongs().size()) {
+                || playlistEntity.getSongs().size() != newOrder.size()) {
             logger.error("couldn't change song order because the new song order contains fewer or " +
                     "more songs than the old one");
             return null;
         }
 
-        playlistEntity.setSongs(playlistWithNewOrder.getSongs());
+        // reuses the existing relations instead of replacing them, so only changed sort keys are written
+        Map<Long, SongInPlaylistEntity> existingSongs = new HashMap<>();
+        for (SongInPlaylistEntity sip : playlistEntity.getSongs()) {
+            existingSongs.put(sip.getSong().getSongId(), sip);
+        }
+
+        List<SongInPlaylistEntity> reordered = new ArrayList<>(newOrder.size());
+        for (SongDTO song : newOrder) {
+            SongInPlaylistEntity sip = existingSongs.remove(song.songId());
+            if (sip == null) {
+                logger.error("couldn't change song order because the new song order contains songs " +
+                        "that aren't in the playlist");
+                return null;
+            }
+            reordered.add(sip);
+        }
+
+        playlistEntity.getSongs().clear();
+        playlistEntity.getSongs().addAll(reordered);
+        playlistEntity.renumberSongs();
+        sortedSongIndex.invalidate(playlistId);
         return Mapper.toPlaylistDTO(playlistEntity, playlistEntity.getAddDate(userProvider.getUser()));
     }
 
 
+    @Transactional
+    @WithSpan
+    public PlaylistSummaryDTO moveSongsInPlaylist(Long playlistId, List<SongMoveDTO> moves) {
+        if (moves == null || moves.isEmpty()) {
+            logger.error("couldn't move songs because no moves were sent");
+            return null;
+        }
+
+        PlaylistEntity playlistEntity = getPlaylistWithSongs(playlistId);
+
+        if (isAccessToPlaylistDenied(playlistEntity)) {
+            logger.error("couldn't move songs of playlist with ID {} because access is denied", playlistId);
+            return null;
+        }
+
+        // moves don't change the number of songs, so all of them can be checked before anything is changed
+        int numberOfSongs = playlistEntity.getSongs().size();
+        for (SongMoveDTO move : moves) {
+            if (move == null || move.from() < 0 || move.from() >= numberOfSongs
+                    || move.to() < 0 || move.to() >= numberOfSongs) {
+                logger.error("couldn't move songs of playlist with ID {} because move {} is invalid", playlistId, move);
+                return null;
+            }
+        }
+
+        // moves are applied one after another, positions of a move refer to the order after the previous ones
+        for (SongMoveDTO move : moves) {
+            playlistEntity.moveSong(move.from(), move.to());
+        }
+        sortedSongIndex.invalidate(playlistId);
+
+        logger.info("{} songs were moved in playlist {}", moves.size(), playlistEntity.getPlaylistName());
+        return Mapper.toPlaylistSummaryDTO(playlistEntity, playlistEntity.getAddDate(userProvider.getUser()));
+    }
+
+
     @Transactional
     @WithSpan
     public PlaylistDTO changePlaylistName(Long playlistId, String newPlaylistName) {
-        PlaylistEntity playlistEntity = getPlaylist(playlistId);
+        PlaylistEntity playlistEntity = getPlaylistWithSongs(playlistId);
 
         if (isAccessToPlaylistDenied(playlistEntity) || !isPlaylistNameValid(newPlaylistName)) {
             logger.error("playlist couldn't be renamed because it doesn't exist, access is denied or the new name is invalid");
@@ -369,7 +736,7 @@ public class PlaylistService {
     @Transactional
     @WithSpan
     public PlaylistDTO changePlaylistDescription(Long playlistId, String newPlaylistDescription) {
-        PlaylistEntity playlistEntity = getPlaylist(playlistId);
+        PlaylistEntity playlistEntity = getPlaylistWithSongs(playlistId);
 
         if (isAccessToPlaylistDenied(playlistEntity) || !isPlaylistDescriptionValid(newPlaylistDescription)) {
             logger.error("playlist's description couldn't be changed because playlist doesn't exist, access is denied or the new description is invalid");
@@ -389,7 +756,7 @@ public class PlaylistService {
     @Transactional
     @WithSpan
     public PlaylistDTO changePlaylistVisibility(Long playlistId, Visibility visibility) {
-        PlaylistEntity playlistEntity = getPlaylist(playlistId);
+        PlaylistEntity playlistEntity = getPlaylistWithSongs(playlistId);
 
         if (isAccessToPlaylistDenied(playlistEntity)) {
             logger.error("visibility of playlist couldn't be changed because it doesn't exist or access is denied");
@@ -409,7 +776,7 @@ public class PlaylistService {
     @Transactional
     @WithSpan
     public PlaylistDTO changePlaylistSorting(Long playlistId, Sorting sorting) {
-        PlaylistEntity playlistEntity = getPlaylist(playlistId);
+        PlaylistEntity playlistEntity = getPlaylistWithSongs(playlistId);
 
         if (isAccessToPlaylistDenied(playlistEntity)) {
             logger.error("sorting of playlist couldn't be changed because it doesn't exist or access is denied");
@@ -441,36 +808,67 @@ public class PlaylistService {
     }
 
 
-    @Transactional
+    /**
+     * Replaces the cover of a playlist. The upload is stored outside of any transaction, so a database connection
+     * is only held for the access check and for the short transaction that swaps the cover file.
+     *
+     * @return the playlist or {@code null} if access is denied or the file isn't a supported image or too large
+     */
     @WithSpan
-    public PlaylistDTO changePlaylistCover(Long playlistId, InputStream file, String contentType) {
-        PlaylistEntity playlistEntity = getPlaylist(playlistId);
-
-        if (isAccessToPlaylistDenied(playlistEntity)) {
+    public PlaylistDTO changePlaylistCover(Long playlistId, InputStream file) {
+        // checked before the upload is stored, so unauthorized uploads aren't written
+        if (Boolean.TRUE.equals(QuarkusTransaction.requiringNew()
+                .call(() -> isAccessToPlaylistDenied(getPlaylist(playlistId))))) {
             logger.error("cover of playlist couldn't be changed because it doesn't exist or acces is denied");
             return null;
         }
 
+        StagedCover stagedCover;
         try {
-            byte[] bytes = file.readAllBytes();
+            stagedCover = coverStorage.stage(file);
+        } catch (IOException e) {
+            logger.error("Failed to store cover image data: {}", e.getMessage());
+            return null;
+        }
+        if (stagedCover == null) {
+            logger.error("cover of playlist couldn't be changed because the file isn't a supported image or too large");
+            return null;
+        }
 
-            // Remove old cover file if it exists
-            CoverFileEntity oldCover = playlistEntity.getCoverFile();
-            if (oldCover != null) {
-                coverFileRepository.delete(oldCover);
-            }
+        PlaylistDTO playlistDTO = null;
+        try {
+            playlistDTO = QuarkusTransaction.requiringNew().call(() -> swapPlaylistCover(playlistId, stagedCover));
+            return playlistDTO;
+        } finally {
+            coverStorage.finishStaged(stagedCover, playlistDTO != null);
+        }
+    }
 
-            // Create and persist new cover file
-            CoverFileEntity newCover = new CoverFileEntity();
-            newCover.setContentType(contentType);
-            newCover.setData(bytes);
-            newCover.setPlaylist(playlistEntity);
-            coverFileRepository.persist(newCover);
-            playlistEntity.setCoverFile(newCover);
-        } catch (IOException e) {
-            logger.error("Failed to read cover image data: {}", e.getMessage());
+
+    private PlaylistDTO swapPlaylistCover(Long playlistId, StagedCover stagedCover) {
+        PlaylistEntity playlistEntity = getPlaylistWithSongs(playlistId);
+
+        // the playlist may have been deleted while the upload was stored
+        if (isAccessToPlaylistDenied(playlistEntity)) {
+            logger.error("cover of playlist couldn't be changed because it doesn't exist or acces is denied");
             return null;
         }
+
+        // Remove old cover file if it exists
+        CoverFileEntity oldCover = playlistEntity.getCoverFile();
+        if (oldCover != null) {
+            coverStorage.release(oldCover);
+            coverFileRepository.delete(oldCover);
+        }
+
+        // Create and persist new cover file
+        CoverFileEntity newCover = new CoverFileEntity();
+        newCover.setContentType(stagedCover.contentType());
+        newCover.setContentHash(stagedCover.hash());
+        newCover.setFileSize(stagedCover.size());
+        newCover.setPlaylist(playlistEntity);
+        coverFileRepository.persist(newCover);
+        playlistEntity.setCoverFile(newCover);
         return Mapper.toPlaylistDTO(playlistEntity, playlistEntity.getAddDate(userProvider.getUser()));
     }
 
@@ -478,54 +876,65 @@ public class PlaylistService {
     @Transactional
     @WithSpan
     public PlaylistDTO deletePlaylistCover(Long playlistId) {
-        PlaylistEntity playlistEntity = getPlaylist(playlistId);
+        PlaylistEntity playlistEntity = getPlaylistWithSongs(playlistId);
 
         if (isAccessToPlaylistDenied(playlistEntity)) {
             logger.error("cover of playlist couldn't be deleted because it doesn't exist or access is denied");
             return null;
         }
 
-        coverFileRepository.delete(playlistEntity.getCoverFile());
-        playlistEntity.setCoverFile(null);
+        if (playlistEntity.getCoverFile() != null) {
+            coverStorage.release(playlistEntity.getCoverFile());
+            coverFileRepository.delete(playlistEntity.getCoverFile());
+            playlistEntity.setCoverFile(null);
+        }
         return Mapper.toPlaylistDTO(playlistEntity, playlistEntity.getAddDate(userProvider.getUser()));
     }
 
+    /**
+     * One page of public playlists with their songs, in the same shape as before they were paged.
+     *
+     * @return the playlists or {@code null} if the limit is invalid
+     */
     @Transactional
-    public List<PlaylistDTO> getPublicPlaylists() {
+    public List<PlaylistDTO> getPublicPlaylists(Long after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            logger.error("public playlists couldn't be loaded because limit {} is invalid", limit);
+            return null;
+        }
+
+        // filtering and paging happen in the database, only one page is ever loaded
         LocalDateTime now = LocalDateTime.now();
-        return playlistRepository.listAll().stream()
-                .filter(p -> p.getVisibility() == Visibility.PUBLIC)// only public playlists
-                .map(p -> Mapper.toPlaylistDTO(p, now)) // map each Playlist to PlaylistDTO
+        return playlistRepository.findPublicPageWithSongs(after, limit).stream()
+                .map(p -> Mapper.toPlaylistDTO(p, now))
                 .toList(); // changed from .collect(Collectors.toList()) to ensure list is unmodified (sonarqube)
     }
 
+    // playlists created before number of songs and playtime were persisted start with 0
+    @Transactional
+    void backfillSongAggregates(@Observes StartupEvent event) {
+        int updated = playlistRepository.backfillSongAggregates();
+        if (updated > 0) {
+            logger.info("computed number of songs and playtime for {} playlists", updated);
+        }
+    }
+
     /* Helper */
 
     private boolean isPlaylistNameValid(String playlistName) {
-        logger.info("checking playlist name...");
-        if (playlistName == null || playlistName.isBlank()) {
-            logger.error("playlistName is null or blank");
-            return false;
+        ValidationResult result = textValidator.validateName(playlistName);
+        if (!result.isValid()) {
+            logger.error("playlist name {}", result.message());
         }
-        return isStringValid(playlistName, MAX_LEN_NAME);
+        return result.isValid();
     }
 
     private boolean isPlaylistDescriptionValid(String description) {
-        logger.info("checking playlist description...");
-        return isStringValid(description, MAX_LEN_DESCRIPTION);
-    }
-
-    private boolean isStringValid(String string, int characterLimit) {
-        if (string.length() > characterLimit) {
-            logger.error("string has too many characters");
-            return false;
-        }
-
-        boolean success = string.matches(VALID_CHARACTERS_REGEX);
-        if (!success) {
-            logger.error("string contains invalid characters: {}", string);
+        ValidationResult result = textValidator.validateDescription(description);
+        if (!result.isValid()) {
+            logger.error("playlist description {}", result.message());
         }
-        return success;
+        return result.isValid();
     }
 
     private boolean isAccessToPlaylistDenied(PlaylistEntity playlist) {
@@ -544,8 +953,8 @@ public class PlaylistService {
             logger.error("Access denied: user is null");
             return true;
         }
-        boolean hasAccess = user.getPlaylistsInLibrary().stream()
-                .anyMatch(pil -> pil.getPlaylist().equals(playlist));
+        // asks the database instead of loading the whole library with all its playlists
+        boolean hasAccess = playlistRepository.isInLibrary(playlist.getPlaylistId(), user.getUid());
 
         if (!hasAccess) {
             logger.error("Access denied to playlist {}", playlist.getPlaylistName());
@@ -554,6 +963,23 @@ public class PlaylistService {
         return !hasAccess;
     }
 
+    private SongOrder getSongOrder(Long playlistId, Sorting sorting) {
+        SongOrder order = sortedSongIndex.get(playlistId, sorting);
+        if (order == null) {
+            long generation = sortedSongIndex.generation();
+            List<Object[]> rows = playlistRepository.findOrder(playlistId, sorting);
+            long[] songIds = new long[rows.size()];
+            int[] sortKeys = new int[rows.size()];
+            for (int i = 0; i < songIds.length; i++) {
+                songIds[i] = (Long) rows.get(i)[0];
+                sortKeys[i] = (Integer) rows.get(i)[1];
+            }
+            order = new SongOrder(songIds, sortKeys);
+            sortedSongIndex.put(playlistId, sorting, order, generation);
+        }
+        return order;
+    }
+
     private PlaylistEntity getPlaylist(Long playlistId) {
         if (playlistId == null) {
             logger.error("playlistId was null");
@@ -564,6 +990,17 @@ public class PlaylistService {
         }
     }
 
+    // for operations that map the whole playlist to a DTO afterwards, loads everything in one query
+    private PlaylistEntity getPlaylistWithSongs(Long playlistId) {
+        if (playlistId == null) {
+            logger.error("playlistId was null");
+            return null;
+        } else {
+            logger.info("Searching for playlist with songs with ID {}", playlistId);
+            return playlistRepository.findByIdWithSongs(playlistId);
+        }
+    }
+
     private LocalDateTime persistPilRelation(PlaylistEntity playlist, UserAccountEntity user) {
         Optional<PlaylistInLibraryEntity> existingRelation = user.getPlaylistsInLibrary().stream()
                 .filter(pil -> pil.getPlaylist().equals(playlist))
@@ -0,0 +1,174 @@
+package org.playlimana.service;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.playlimana.model.dto.FacetDTO;
+import org.playlimana.model.entity.SongEntity;
+import org.playlimana.model.repository.SongRepository;
+import org.playlimana.utils.LongHashSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Index of the artists and genres of every song. Artists and genres are JSON columns, so the
+ * database can't answer e.g. the genres of a playlist efficiently. The index is built at startup and every
+ * new song is added, songs are never changed afterwards. Counting only looks up the songs of the scope,
+ * so it doesn't depend on the number of artists and genres of all songs.
+ * A song whose transaction is rolled back stays in the index. That doesn't matter, because the index is only
+ * used together with the song IDs of a playlist or library and its ID is never used again.
+ */
+@ApplicationScoped
+public class SongFacetIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SongFacetIndex.class);
+    private static final int LOAD_CHUNK_SIZE = 10_000;
+    private static final int[] NO_FACETS = new int[0];
+
+    private final SongRepository songRepository;
+
+    // many requests read, only new songs write
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Facets artists = new Facets();
+    private final Facets genres = new Facets();
+    // facet numbers of each song, a song has only a few, so they are kept in small arrays
+    private final Map<Long, SongFacets> songs = new HashMap<>();
+
+    private record SongFacets(int[] artists, int[] genres) {
+    }
+
+    // artists or genres are numbered, so songs don't keep a copy of every name
+    private static final class Facets {
+        // keys are normalized, so "Queen" and "queen " are one artist
+        private final Map<String, Integer> numbers = new HashMap<>();
+        // spelling of the first song with this artist or genre
+        private final List<String> names = new ArrayList<>();
+
+        private int[] numbersOf(int[] existing, List<String> songNames) {
+            if (songNames == null || songNames.isEmpty()) {
+                return existing;
+            }
+            int[] result = Arrays.copyOf(existing, existing.length + songNames.size());
+            int length = existing.length;
+            for (String name : songNames) {
+                if (name != null && !name.isBlank()) {
+                    String trimmedName = name.strip();
+                    int number = numbers.computeIfAbsent(trimmedName.toLowerCase(Locale.ROOT), key -> {
+                        names.add(trimmedName);
+                        return names.size() - 1;
+                    });
+                    // a song counts once even if it lists the same artist twice
+                    if (!contains(result, length, number)) {
+                        result[length++] = number;
+                    }
+                }
+            }
+            return length == existing.length ? existing : Arrays.copyOf(result, length);
+        }
+
+        private static boolean contains(int[] values, int length, int value) {
+            for (int i = 0; i < length; i++) {
+                if (values[i] == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @Inject
+    public SongFacetIndex(SongRepository songRepository) {
+        this.songRepository = songRepository;
+    }
+
+    public void add(SongEntity song) {
+        if (song != null && song.getSongId() != null) {
+            add(song.getSongId(), song.getArtists(), song.getGenres());
+        }
+    }
+
+    public void add(long songId, List<String> songArtists, List<String> songGenres) {
+        lock.writeLock().lock();
+        try {
+            SongFacets existing = songs.getOrDefault(songId, new SongFacets(NO_FACETS, NO_FACETS));
+            SongFacets songFacets = new SongFacets(artists.numbersOf(existing.artists(), songArtists),
+                    genres.numbersOf(existing.genres(), songGenres));
+            if (songFacets.artists().length > 0 || songFacets.genres().length > 0) {
+                songs.put(songId, songFacets);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Artists of the given songs with the number of songs of each, the artist with the most songs first.
+     */
+    public List<FacetDTO> countArtists(LongHashSet songIds, int limit) {
+        return count(artists, SongFacets::artists, songIds, limit);
+    }
+
+    /**
+     * Genres of the given songs with the number of songs of each, the genre with the most songs first.
+     */
+    public List<FacetDTO> countGenres(LongHashSet songIds, int limit) {
+        return count(genres, SongFacets::genres, songIds, limit);
+    }
+
+    private List<FacetDTO> count(Facets facets, Function<SongFacets, int[]> facetsOfSong, LongHashSet songIds,
+                                 int limit) {
+        Map<Integer, Integer> countsByNumber = new HashMap<>();
+        List<FacetDTO> counts = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            songIds.forEach(songId -> {
+                SongFacets songFacets = songs.get(songId);
+                if (songFacets != null) {
+                    for (int number : facetsOfSong.apply(songFacets)) {
+                        countsByNumber.merge(number, 1, Integer::sum);
+                    }
+                }
+            });
+            countsByNumber.forEach((number, count) -> counts.add(new FacetDTO(facets.names.get(number), count)));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        counts.sort(Comparator.comparingInt(FacetDTO::count).reversed().thenComparing(FacetDTO::name));
+        return counts.size() > limit ? List.copyOf(counts.subList(0, limit)) : counts;
+    }
+
+    // songs are loaded in chunks by ID, so the whole song table is never in memory at once
+    @SuppressWarnings("unchecked")
+    void build(@Observes StartupEvent event) {
+        long lastSongId = 0;
+        int numberOfSongs = 0;
+        List<Object[]> rows;
+        do {
+            long afterSongId = lastSongId;
+            rows = QuarkusTransaction.requiringNew()
+                    .call(() -> songRepository.findArtistsAndGenres(afterSongId, LOAD_CHUNK_SIZE));
+            for (Object[] row : rows) {
+                lastSongId = (Long) row[0];
+                add(lastSongId, (List<String>) row[1], (List<String>) row[2]);
+            }
+            numberOfSongs += rows.size();
+        } while (rows.size() == LOAD_CHUNK_SIZE);
+
+        logger.info("indexed {} artists and {} genres of {} songs", artists.names.size(), genres.names.size(),
+                numberOfSongs);
+    }
+}
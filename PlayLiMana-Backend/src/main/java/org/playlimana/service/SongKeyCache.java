@@ -0,0 +1,44 @@
+package org.playlimana.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cross-request cache of natural key -> song ID so that songs which are imported again and again
+ * are resolved by primary key instead of a lookup on the natural key.
+ * An entry can point to a song that doesn't exist anymore, callers have to invalidate it then.
+ */
+@ApplicationScoped
+public class SongKeyCache {
+
+    private static final int MAX_ENTRIES = 50_000;
+
+    // access ordered LinkedHashMap = least recently used song is dropped first
+    private final Map<String, Long> songIds = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    public synchronized Long get(String naturalKey) {
+        if (naturalKey == null) {
+            return null;
+        }
+        return songIds.get(naturalKey);
+    }
+
+    public synchronized void put(String naturalKey, Long songId) {
+        if (naturalKey != null && songId != null) {
+            songIds.put(naturalKey, songId);
+        }
+    }
+
+    public synchronized void invalidate(String naturalKey) {
+        if (naturalKey != null) {
+            songIds.remove(naturalKey);
+        }
+    }
+}
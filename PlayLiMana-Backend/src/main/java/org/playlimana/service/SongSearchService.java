@@ -0,0 +1,202 @@
+package org.playlimana.service;
+
+import io.opentelemetry.instrumentation.annotations.WithSpan;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.playlimana.auth.UserProvider;
+import org.playlimana.model.dto.LibrarySongDTO;
+import org.playlimana.model.dto.PageDTO;
+import org.playlimana.model.dto.SongDTO;
+import org.playlimana.model.dto.SongLocationDTO;
+import org.playlimana.model.entity.SongEntity;
+import org.playlimana.model.entity.UserAccountEntity;
+import org.playlimana.model.repository.PlaylistRepository;
+import org.playlimana.model.repository.SongRepository;
+import org.playlimana.utils.Mapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Searches all songs or the songs of a user's library by title, album, artists and genres. On PostgreSQL the
+ * search uses a full text index ranked by relevance and a trigram index for parts of words, other databases
+ * fall back to LIKE.
+ */
+@ApplicationScoped
+public class SongSearchService {
+
+    public static final int MAX_QUERY_LENGTH = 200;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final Logger logger = LoggerFactory.getLogger(SongSearchService.class);
+
+    private final SongRepository songRepository;
+    private final PlaylistRepository playlistRepository;
+    private final UserProvider userProvider;
+    private final boolean isPostgres;
+
+    // false until the indexes exist, without them the full text search would scan all songs
+    private volatile boolean isFullTextIndexed;
+
+    @Inject
+    public SongSearchService(SongRepository songRepository, PlaylistRepository playlistRepository,
+                             UserProvider userProvider,
+                             @ConfigProperty(name = "quarkus.datasource.db-kind") String dbKind) {
+        this.songRepository = songRepository;
+        this.playlistRepository = playlistRepository;
+        this.userProvider = userProvider;
+        this.isPostgres = "postgresql".equals(dbKind);
+    }
+
+    /**
+     * @param query words to search for, e.g. "queen bohemian"
+     * @return one page of matching songs, the best match first, or {@code null} if query or page are invalid
+     */
+    @Transactional
+    @WithSpan
+    public PageDTO<SongDTO> searchSongs(String query, int page, int pageSize) {
+        if (isInvalid(query, page, pageSize)) {
+            return null;
+        }
+
+        String trimmedQuery = query.strip();
+        List<SongEntity> songs = search(trimmedQuery, null, page, pageSize);
+        long total = count(trimmedQuery, null);
+
+        List<SongDTO> songDTOs = new ArrayList<>(songs.size());
+        for (SongEntity song : songs) {
+            songDTOs.add(Mapper.toSongDTO(song));
+        }
+        logger.debug("search with {} characters found {} songs", trimmedQuery.length(), total);
+        return new PageDTO<>(songDTOs, page, pageSize, total);
+    }
+
+    /**
+     * Searches the songs of all playlists in the user's library. Every song is returned once, together with the
+     * playlists that contain it and its position in each.
+     *
+     * @return one page of matching songs, the best match first, or {@code null} if the user isn't logged in or
+     * query or page are invalid
+     */
+    @Transactional
+    @WithSpan
+    public PageDTO<LibrarySongDTO> searchLibrary(String query, int page, int pageSize) {
+        if (isInvalid(query, page, pageSize)) {
+            return null;
+        }
+        UserAccountEntity user = userProvider.getUser();
+        if (user == null) {
+            logger.error("library couldn't be searched because user is not logged in");
+            return null;
+        }
+
+        String trimmedQuery = query.strip();
+        List<SongEntity> songs = search(trimmedQuery, user.getUid(), page, pageSize);
+        long total = count(trimmedQuery, user.getUid());
+
+        Map<Long, List<SongLocationDTO>> locations = new HashMap<>();
+        if (!songs.isEmpty()) {
+            List<Long> songIds = new ArrayList<>(songs.size());
+            for (SongEntity song : songs) {
+                songIds.add(song.getSongId());
+            }
+            for (Object[] row : playlistRepository.findSongLocations(user.getUid(), songIds)) {
+                locations.computeIfAbsent((Long) row[0], id -> new ArrayList<>())
+                        .add(new SongLocationDTO((Long) row[1], (String) row[2], ((Long) row[3]).intValue()));
+            }
+        }
+
+        List<LibrarySongDTO> librarySongs = new ArrayList<>(songs.size());
+        for (SongEntity song : songs) {
+            librarySongs.add(new LibrarySongDTO(Mapper.toSongDTO(song),
+                    locations.getOrDefault(song.getSongId(), List.of())));
+        }
+        logger.debug("search with {} characters found {} songs in library", trimmedQuery.length(), total);
+        return new PageDTO<>(librarySongs, page, pageSize, total);
+    }
+
+    private boolean isInvalid(String query, int page, int pageSize) {
+        if (query == null || query.isBlank() || query.length() > MAX_QUERY_LENGTH) {
+            logger.error("songs couldn't be searched because the query is empty or too long");
+            return true;
+        }
+        // the index of the first song has to fit into an int
+        if (page < 0 || pageSize < 1 || pageSize > MAX_PAGE_SIZE || (long) page * pageSize > Integer.MAX_VALUE) {
+            logger.error("songs couldn't be searched because page {} with size {} is invalid", page, pageSize);
+            return true;
+        }
+        return false;
+    }
+
+    // uid restricts the search to a library, null searches all songs
+    private List<SongEntity> search(String query, String uid, int page, int pageSize) {
+        if (isFullTextIndexed) {
+            return findInOrder(songRepository.searchFullText(query, uid, page, pageSize));
+        }
+        return songRepository.searchLike(toLikePattern(query), uid, page, pageSize);
+    }
+
+    private long count(String query, String uid) {
+        if (isFullTextIndexed) {
+            return songRepository.countFullText(query, uid);
+        }
+        return songRepository.countLike(toLikePattern(query), uid);
+    }
+
+    private List<SongEntity> findInOrder(List<Long> songIds) {
+        if (songIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, SongEntity> songsById = new HashMap<>();
+        for (SongEntity song : songRepository.list("songId in ?1", songIds)) {
+            songsById.put(song.getSongId(), song);
+        }
+        List<SongEntity> songs = new ArrayList<>(songIds.size());
+        for (Long songId : songIds) {
+            SongEntity song = songsById.get(songId);
+            if (song != null) {
+                songs.add(song);
+            }
+        }
+        return songs;
+    }
+
+    /**
+     * Turns a query into a LIKE pattern that matches the query anywhere, wildcards in the query are escaped.
+     */
+    private static String toLikePattern(String query) {
+        StringBuilder pattern = new StringBuilder(query.length() + 2).append('%');
+        for (char c : query.toLowerCase(Locale.ROOT).toCharArray()) {
+            if (c == '%' || c == '_' || c == '!') {
+                pattern.append('!');
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+
+    // the indexes are expressions hibernate doesn't know, so they are created here instead of by schema generation
+    void createSearchIndexes(@Observes StartupEvent event) {
+        if (!isPostgres) {
+            logger.info("songs are searched without full text index, the database doesn't support it");
+            return;
+        }
+        try {
+            QuarkusTransaction.requiringNew().run(songRepository::createSearchIndexes);
+            isFullTextIndexed = true;
+        } catch (RuntimeException e) {
+            logger.error("full text index for songs couldn't be created, songs are searched without it: {}",
+                    e.getMessage());
+        }
+    }
+}
@@ -1,26 +1,43 @@
 package org.playlimana.service;
 
 import io.opentelemetry.instrumentation.annotations.WithSpan;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import org.playlimana.model.dto.SongDTO;
 import org.playlimana.model.entity.SongEntity;
 import org.playlimana.model.repository.SongRepository;
 import org.playlimana.utils.Mapper;
+import org.playlimana.utils.SongIdentity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @ApplicationScoped
 public class SongService {
 
     private static final Logger logger = LoggerFactory.getLogger(SongService.class);
+    // songs loaded per transaction when keys or artists of old songs are filled in
+    private static final int BACKFILL_CHUNK_SIZE = 1_000;
 
     SongRepository songRepository;
+    SongKeyCache songKeyCache;
+    SongFacetIndex songFacetIndex;
 
     @Inject
-    public SongService(SongRepository songRepository) {
+    public SongService(SongRepository songRepository, SongKeyCache songKeyCache, SongFacetIndex songFacetIndex) {
         this.songRepository = songRepository;
+        this.songKeyCache = songKeyCache;
+        this.songFacetIndex = songFacetIndex;
     }
 
 
@@ -35,25 +52,234 @@ public class SongService {
     }
 
 
+    /**
+     * Gets the song by its ID or natural key (see {@link SongIdentity}) and only creates it if neither exists.
+     */
     @Transactional
     @WithSpan
     public SongEntity createSong(SongDTO songDTO) {
-        if (songDTO == null || songDTO.title().isBlank() || songDTO.artists().isEmpty()) {
+        if (!isValid(songDTO)) {
             logger.error("song couldn't be created because it has invalid data");
             return null;
         }
 
-        SongEntity songEntity = getSong(songDTO.songId());
+        // IDs start at 1, new songs are sent with 0
+        SongEntity songEntity = songDTO.songId() > 0 ? getSong(songDTO.songId()) : null;
 
         if (songEntity != null) {
             logger.info("song {} already exists", songDTO.title());
             return songEntity;
         }
 
-        songEntity = Mapper.toSongEntity(songDTO);
-        songRepository.persist(songEntity);
-        logger.info("song {} is new", songDTO.title());
+        String naturalKey = SongIdentity.naturalKey(songDTO);
+        songEntity = findByNaturalKey(naturalKey);
+
+        if (songEntity != null) {
+            logger.info("song {} already exists with ID {}", songDTO.title(), songEntity.getSongId());
+            return songEntity;
+        }
+
+        // another request can create the same song at the same time, the insert then skips it and the song
+        // of the other request is loaded instead of failing on the unique natural key
+        SongEntity newSong = Mapper.toSongEntity(songDTO);
+        newSong.setNaturalKey(naturalKey);
+        boolean isInserted = songRepository.insertIgnoringConflicts(List.of(newSong)) > 0;
+        songEntity = songRepository.findByNaturalKey(naturalKey);
+
+        if (songEntity == null) {
+            logger.error("song {} couldn't be created", songDTO.title());
+            return null;
+        }
+
+        songKeyCache.put(naturalKey, songEntity.getSongId());
+        if (isInserted) {
+            songFacetIndex.add(songEntity);
+            logger.info("song {} is new", songDTO.title());
+        } else {
+            logger.info("song {} was created concurrently with ID {}", songDTO.title(), songEntity.getSongId());
+        }
         return songEntity;
     }
 
+
+    /**
+     * Resolves several songs at once. Existing songs are loaded with one query by ID (including IDs known from the
+     * natural key cache) and one query by natural key, long lists are split into chunks by the repository.
+     * Missing songs are inserted with multi-row inserts that skip conflicting natural keys and are then loaded
+     * with one more query, so every returned entity is managed.
+     *
+     * @return the song entities in the order of the DTOs, {@code null} for every invalid DTO
+     */
+    @Transactional
+    @WithSpan
+    public List<SongEntity> createSongs(List<SongDTO> songDTOs) {
+        String[] naturalKeys = new String[songDTOs.size()];
+        Set<Long> songIds = new HashSet<>();
+        for (int i = 0; i < songDTOs.size(); i++) {
+            SongDTO songDTO = songDTOs.get(i);
+            if (isValid(songDTO)) {
+                naturalKeys[i] = SongIdentity.naturalKey(songDTO);
+                if (songDTO.songId() > 0) {
+                    songIds.add(songDTO.songId());
+                }
+                Long cachedSongId = songKeyCache.get(naturalKeys[i]);
+                if (cachedSongId != null) {
+                    songIds.add(cachedSongId);
+                }
+            }
+        }
+
+        Map<Long, SongEntity> songsById = new HashMap<>();
+        if (!songIds.isEmpty()) {
+            for (SongEntity songEntity : songRepository.findByIds(songIds)) {
+                songsById.put(songEntity.getSongId(), songEntity);
+            }
+        }
+
+        // songs that weren't found by their ID or a cached ID
+        Map<String, SongEntity> songsByKey = new HashMap<>();
+        Set<String> naturalKeysToLoad = new HashSet<>();
+        for (int i = 0; i < songDTOs.size(); i++) {
+            if (naturalKeys[i] != null && !songsById.containsKey(songDTOs.get(i).songId())) {
+                SongEntity cachedSong = songsById.get(songKeyCache.get(naturalKeys[i]));
+                if (cachedSong != null && naturalKeys[i].equals(cachedSong.getNaturalKey())) {
+                    songsByKey.put(naturalKeys[i], cachedSong);
+                } else {
+                    naturalKeysToLoad.add(naturalKeys[i]);
+                }
+            }
+        }
+        if (!naturalKeysToLoad.isEmpty()) {
+            for (SongEntity songEntity : songRepository.findByNaturalKeys(naturalKeysToLoad)) {
+                songsByKey.put(songEntity.getNaturalKey(), songEntity);
+                songKeyCache.put(songEntity.getNaturalKey(), songEntity.getSongId());
+            }
+        }
+
+        // songs that don't exist yet are inserted at once, songs that are sent more than once only once
+        Map<String, SongEntity> newSongs = new HashMap<>();
+        for (int i = 0; i < songDTOs.size(); i++) {
+            if (naturalKeys[i] != null && !songsById.containsKey(songDTOs.get(i).songId())
+                    && !songsByKey.containsKey(naturalKeys[i]) && !newSongs.containsKey(naturalKeys[i])) {
+                SongEntity songEntity = Mapper.toSongEntity(songDTOs.get(i));
+                songEntity.setNaturalKey(naturalKeys[i]);
+                newSongs.put(naturalKeys[i], songEntity);
+            }
+        }
+        if (!newSongs.isEmpty()) {
+            int inserted = songRepository.insertIgnoringConflicts(new ArrayList<>(newSongs.values()));
+            logger.info("{} of {} new songs were inserted, the others were created concurrently",
+                    inserted, newSongs.size());
+            for (SongEntity songEntity : songRepository.findByNaturalKeys(newSongs.keySet())) {
+                songsByKey.put(songEntity.getNaturalKey(), songEntity);
+                songKeyCache.put(songEntity.getNaturalKey(), songEntity.getSongId());
+                songFacetIndex.add(songEntity);
+            }
+        }
+
+        List<SongEntity> songEntities = new ArrayList<>(songDTOs.size());
+        for (int i = 0; i < songDTOs.size(); i++) {
+            if (naturalKeys[i] == null) {
+                songEntities.add(null);
+                continue;
+            }
+            SongEntity songEntity = songsById.get(songDTOs.get(i).songId());
+            songEntities.add(songEntity != null ? songEntity : songsByKey.get(naturalKeys[i]));
+        }
+        logger.info("{} songs were resolved, {} of them were new", songEntities.size(), newSongs.size());
+        return songEntities;
+    }
+
+
+    // songs created before natural keys existed get one, duplicates of an already keyed song keep null,
+    // the songs are processed in chunks by ID with a transaction each, so the song table is never loaded at once
+    void backfillNaturalKeys(@Observes StartupEvent event) {
+        long lastSongId = 0;
+        int keyed = 0;
+        int numberOfSongs = 0;
+        List<SongEntity> songsWithoutKey;
+        do {
+            long afterSongId = lastSongId;
+            songsWithoutKey = QuarkusTransaction.requiringNew().call(() -> {
+                List<SongEntity> chunk = songRepository.findWithoutNaturalKey(afterSongId, BACKFILL_CHUNK_SIZE);
+                keyIfUnique(chunk);
+                return chunk;
+            });
+            if (!songsWithoutKey.isEmpty()) {
+                lastSongId = songsWithoutKey.get(songsWithoutKey.size() - 1).getSongId();
+            }
+            numberOfSongs += songsWithoutKey.size();
+            keyed += (int) songsWithoutKey.stream().filter(songEntity -> songEntity.getNaturalKey() != null).count();
+        } while (songsWithoutKey.size() == BACKFILL_CHUNK_SIZE);
+
+        if (numberOfSongs > 0) {
+            logger.info("computed natural keys for {} of {} songs", keyed, numberOfSongs);
+        }
+    }
+
+    // a key is only set if no other song has it, including the songs keyed by earlier chunks
+    private void keyIfUnique(List<SongEntity> songsWithoutKey) {
+        Map<String, SongEntity> songsByKey = new HashMap<>();
+        for (SongEntity songEntity : songsWithoutKey) {
+            songsByKey.putIfAbsent(SongIdentity.naturalKey(songEntity.getTitle(), songEntity.getArtists(),
+                    songEntity.getAlbum(), songEntity.getPlaytime(), songEntity.getLinksForWebPlayer()), songEntity);
+        }
+
+        for (SongEntity keyedSong : songRepository.findByNaturalKeys(new ArrayList<>(songsByKey.keySet()))) {
+            songsByKey.remove(keyedSong.getNaturalKey());
+        }
+
+        songsByKey.forEach((naturalKey, songEntity) -> songEntity.setNaturalKey(naturalKey));
+    }
+
+
+    // songs created before songs could be sorted by artist get their first artist, or an empty one if they have
+    // none, so every song is only updated once
+    void backfillArtistSort(@Observes StartupEvent event) {
+        long lastSongId = 0;
+        int updated = 0;
+        List<SongEntity> songsWithoutArtistSort;
+        do {
+            long afterSongId = lastSongId;
+            songsWithoutArtistSort = QuarkusTransaction.requiringNew().call(() -> {
+                List<SongEntity> chunk = songRepository.findWithoutArtistSort(afterSongId, BACKFILL_CHUNK_SIZE);
+                chunk.forEach(songEntity -> songEntity.setArtist(songEntity.getArtists()));
+                return chunk;
+            });
+            if (!songsWithoutArtistSort.isEmpty()) {
+                lastSongId = songsWithoutArtistSort.get(songsWithoutArtistSort.size() - 1).getSongId();
+            }
+            updated += songsWithoutArtistSort.size();
+        } while (songsWithoutArtistSort.size() == BACKFILL_CHUNK_SIZE);
+
+        if (updated > 0) {
+            logger.info("stored first artist for sorting of {} songs", updated);
+        }
+    }
+
+
+    private SongEntity findByNaturalKey(String naturalKey) {
+        Long cachedSongId = songKeyCache.get(naturalKey);
+        if (cachedSongId != null) {
+            SongEntity songEntity = songRepository.findById(cachedSongId);
+            if (songEntity != null && naturalKey.equals(songEntity.getNaturalKey())) {
+                return songEntity;
+            }
+            // the song was deleted or the transaction that created it was rolled back
+            songKeyCache.invalidate(naturalKey);
+        }
+
+        SongEntity songEntity = songRepository.findByNaturalKey(naturalKey);
+        if (songEntity != null) {
+            songKeyCache.put(naturalKey, songEntity.getSongId());
+        }
+        return songEntity;
+    }
+
+
+    private static boolean isValid(SongDTO songDTO) {
+        return songDTO != null && songDTO.title() != null && !songDTO.title().isBlank()
+                && songDTO.artists() != null && !songDTO.artists().isEmpty();
+    }
+
 }
@@ -0,0 +1,130 @@
+package org.playlimana.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.playlimana.model.Sorting;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cross-request cache of the order of a playlist's songs for every {@link Sorting}, stored as the song IDs and sort
+ * keys of the songs in the sorted order. A page of a sorted playlist is then loaded by the song IDs of just this page.
+ * Has to be invalidated whenever songs of a playlist are added, removed or moved.
+ */
+@ApplicationScoped
+public class SortedSongIndex {
+
+    private static final int MAX_PLAYLISTS = 1_000;
+
+    private final TransactionSynchronizationRegistry transactionRegistry;
+
+    // access ordered LinkedHashMap = least recently used playlist is dropped first, indexed by Sorting.ordinal()
+    private final Map<Long, SongOrder[]> orders = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, SongOrder[]> eldest) {
+            return size() > MAX_PLAYLISTS;
+        }
+    };
+
+    // incremented by every invalidation, orders loaded before an invalidation may be outdated and aren't cached
+    private long generation;
+
+    @Inject
+    public SortedSongIndex(TransactionSynchronizationRegistry transactionRegistry) {
+        this.transactionRegistry = transactionRegistry;
+    }
+
+    /**
+     * Songs of a playlist in one order. Sort keys aren't unique, concurrent appends can assign the same key twice,
+     * so a song is identified by its ID and songs with the same sort key are ordered by ID.
+     *
+     * @param songIds  IDs of the songs in this order
+     * @param sortKeys sort keys of the same songs
+     */
+    public record SongOrder(long[] songIds, int[] sortKeys) {
+
+        public int size() {
+            return songIds.length;
+        }
+
+        /**
+         * Index of a song in the custom order, which is sorted by sort key and song ID.
+         *
+         * @return the index or a negative number if the song isn't in this order
+         */
+        public int indexOfCustom(int sortKey, long songId) {
+            int low = 0;
+            int high = songIds.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int comparison = sortKeys[middle] != sortKey
+                        ? Integer.compare(sortKeys[middle], sortKey)
+                        : Long.compare(songIds[middle], songId);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * @return the playlist's songs in the given order or {@code null} if they aren't cached
+     */
+    public synchronized SongOrder get(Long playlistId, Sorting sorting) {
+        SongOrder[] playlistOrders = orders.get(playlistId);
+        return playlistOrders != null ? playlistOrders[sorting.ordinal()] : null;
+    }
+
+    /**
+     * Has to be read before the order is loaded and passed to {@link #put}.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Caches an order unless the cache was invalidated since {@code loadedAt}.
+     */
+    public synchronized void put(Long playlistId, Sorting sorting, SongOrder order, long loadedAt) {
+        if (loadedAt != generation) {
+            return;
+        }
+        orders.computeIfAbsent(playlistId, id -> new SongOrder[Sorting.values().length])[sorting.ordinal()] = order;
+    }
+
+    /**
+     * Drops the cached orders of a playlist now and again when the current transaction is finished,
+     * so orders that other requests load before the commit aren't kept either.
+     */
+    public void invalidate(Long playlistId) {
+        remove(playlistId);
+
+        if (transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                    // nothing to do before the commit
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    remove(playlistId);
+                }
+            });
+        }
+    }
+
+    private synchronized void remove(Long playlistId) {
+        orders.remove(playlistId);
+        generation++;
+    }
+}
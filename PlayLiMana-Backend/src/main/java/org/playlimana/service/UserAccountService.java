@@ -4,6 +4,7 @@ import com.google.firebase.auth.FirebaseToken;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import org.playlimana.auth.UserAccountCache;
 import org.playlimana.auth.UserProvider;
 import org.playlimana.auth.FirebaseTokenVerifier;
 import org.playlimana.model.dto.ConnectedServiceDTO;
@@ -23,12 +24,15 @@ public class UserAccountService {
 
     UserAccountRepository userAccountRepository;
     UserProvider userProvider;
+    UserAccountCache userAccountCache;
 
     @Inject
     public UserAccountService(UserAccountRepository userAccountRepository,
-                              UserProvider userProvider) {
+                              UserProvider userProvider,
+                              UserAccountCache userAccountCache) {
         this.userAccountRepository = userAccountRepository;
         this.userProvider = userProvider;
+        this.userAccountCache = userAccountCache;
     }
 
     @Transactional
@@ -51,6 +55,7 @@ public class UserAccountService {
             UserAccountEntity user = userAccountRepository.findByUid(uid);
             if (user != null) {
                 user.setUsername(username);
+                userAccountCache.invalidate(uid);
             }
         }
     }
@@ -91,8 +96,13 @@ public class UserAccountService {
             String uid = decoded.getUid();
 
             if (uid != null && !uid.isBlank()) {
-                UserAccountEntity user = userAccountRepository.findByUid(uid);
-                userProvider.setUser(user);
+                UserAccountCache.UserAccountSummary cached = userAccountCache.get(uid);
+                if (cached != null) {
+                    userProvider.setUserSummary(cached);
+                } else {
+                    UserAccountEntity user = userAccountRepository.findByUid(uid);
+                    userProvider.setUser(user);
+                }
             }
 
         } catch (Exception e) {
@@ -109,6 +119,7 @@ public class UserAccountService {
         if (user == null) {
             throw new IllegalArgumentException("Unknown user " + uid);
         }
+        userAccountCache.invalidate(uid);
 
         // 1st try to update an existing slot
         if (dto.serviceName().equals(user.getServiceName1()) || user.getServiceName1() == null) {
@@ -139,6 +150,7 @@ public class UserAccountService {
         if (user == null) {
             throw new IllegalArgumentException("Unknown user " + uid);
         }
+        userAccountCache.invalidate(uid);
 
         if (serviceName.equals(user.getServiceName1())) {
             user.setServiceName1(null);
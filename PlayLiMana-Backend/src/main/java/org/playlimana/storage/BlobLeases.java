@@ -0,0 +1,94 @@
+package org.playlimana.storage;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.playlimana.model.entity.BlobLeaseEntity;
+import org.playlimana.model.repository.BlobLeaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Protects blobs that are stored but not referenced yet from being deleted as unreferenced.
+ * The lease is taken after the content is written and before it becomes visible in the {@link BlobStore},
+ * and a blob is only deleted while its lease row is locked and has no leases ({@link #lockIfUnleased}),
+ * so storing and deleting the same blob can't overlap.
+ * A lease that isn't released, e.g. because the application crashed, keeps its blob forever. That only wastes space.
+ */
+@ApplicationScoped
+public class BlobLeases {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobLeases.class);
+    // the row is only missing again if another transaction deleted the blob in between
+    private static final int MAX_ACQUIRE_ATTEMPTS = 3;
+
+    private final BlobStore blobStore;
+    private final BlobLeaseRepository blobLeaseRepository;
+
+    @Inject
+    public BlobLeases(BlobStore blobStore, BlobLeaseRepository blobLeaseRepository) {
+        this.blobStore = blobStore;
+        this.blobLeaseRepository = blobLeaseRepository;
+    }
+
+    /**
+     * Stores the content with a lease on its blob. Has to be called outside of a transaction,
+     * the lease is committed before the blob becomes visible. The lease has to be {@link #release released}
+     * once the transaction that references the blob is finished.
+     */
+    public StoredBlob put(InputStream content) throws IOException {
+        String[] leasedHash = new String[1];
+        try {
+            return blobStore.put(content, hash -> {
+                QuarkusTransaction.requiringNew().run(() -> acquire(hash));
+                leasedHash[0] = hash;
+            });
+        } catch (IOException | RuntimeException e) {
+            if (leasedHash[0] != null) {
+                release(leasedHash[0]);
+            }
+            throw e;
+        }
+    }
+
+    public void release(String hash) {
+        try {
+            QuarkusTransaction.requiringNew().run(() -> blobLeaseRepository.decrement(hash));
+        } catch (RuntimeException e) {
+            // the blob is kept, which only wastes space
+            logger.error("couldn't release lease of blob {}: {}", hash, e.getMessage());
+        }
+    }
+
+    /**
+     * Has to be called in the transaction that deletes the blob. Locks the lease row until the transaction ends,
+     * so no lease can be taken until then.
+     *
+     * @return {@code true} if the blob has no leases and can be deleted with {@link #delete} in this transaction
+     */
+    public boolean lockIfUnleased(String hash) {
+        BlobLeaseEntity lease = blobLeaseRepository.lock(hash);
+        return lease != null && lease.getLeaseCount() == 0;
+    }
+
+    /**
+     * Deletes a blob and its lease row, only after {@link #lockIfUnleased} returned {@code true} in this transaction.
+     */
+    public void delete(String hash) throws IOException {
+        blobStore.delete(hash);
+        blobLeaseRepository.deleteById(hash);
+    }
+
+    private void acquire(String hash) {
+        for (int attempt = 0; attempt < MAX_ACQUIRE_ATTEMPTS; attempt++) {
+            blobLeaseRepository.insertIfAbsent(hash);
+            if (blobLeaseRepository.increment(hash)) {
+                return;
+            }
+        }
+        throw new IllegalStateException("couldn't acquire lease of blob " + hash);
+    }
+}
@@ -0,0 +1,45 @@
+package org.playlimana.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Content-addressed storage for binary data like cover images.
+ * Blobs are keyed by the SHA-256 of their content, so storing the same content twice keeps one copy.
+ */
+public interface BlobStore {
+
+    /**
+     * Streams the content into the store without holding it in memory. The stream isn't closed.
+     */
+    default StoredBlob put(InputStream content) throws IOException {
+        return put(content, hash -> {
+        });
+    }
+
+    /**
+     * Like {@link #put(InputStream)}, but calls {@code beforeStore} with the hash once the content is read
+     * and before the blob becomes visible, e.g. to take a lease on it (see {@link BlobLeases}).
+     */
+    StoredBlob put(InputStream content, Consumer<String> beforeStore) throws IOException;
+
+    /**
+     * @throws java.nio.file.NoSuchFileException if there is no blob with this hash
+     */
+    InputStream open(String hash) throws IOException;
+
+    /**
+     * The file of the blob if the store keeps it on the local file system, so it can be sent without copying it
+     * through the JVM (e.g. with sendfile).
+     */
+    default Optional<Path> localPath(String hash) {
+        return Optional.empty();
+    }
+
+    boolean exists(String hash);
+
+    void delete(String hash) throws IOException;
+}
@@ -0,0 +1,296 @@
+package org.playlimana.storage;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.Transactional;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.playlimana.model.entity.CoverFileEntity;
+import org.playlimana.model.entity.CoverVariantEntity;
+import org.playlimana.model.repository.CoverFileRepository;
+import org.playlimana.model.repository.CoverVariantRepository;
+import org.playlimana.utils.ImageSniffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Stores cover images in the {@link BlobStore} and removes blobs that are no longer referenced by any
+ * {@link CoverFileEntity}. Whether a blob is still referenced can only be decided after the transaction
+ * that changed the covers is finished, so the check runs after completion. Uploads that aren't referenced yet
+ * are protected by {@link BlobLeases}.
+ * Resized variants of a new image are created by {@link CoverThumbnails} once its transaction is committed
+ * and removed together with the image.
+ */
+@ApplicationScoped
+public class CoverStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoverStorage.class);
+    private static final int MIGRATION_BATCH_SIZE = 20;
+
+    private final BlobStore blobStore;
+    private final BlobLeases blobLeases;
+    private final CoverFileRepository coverFileRepository;
+    private final CoverVariantRepository coverVariantRepository;
+    private final CoverThumbnails coverThumbnails;
+    private final TransactionSynchronizationRegistry transactionRegistry;
+    private final long maxSize;
+
+    @Inject
+    public CoverStorage(BlobStore blobStore, BlobLeases blobLeases, CoverFileRepository coverFileRepository,
+                        CoverVariantRepository coverVariantRepository, CoverThumbnails coverThumbnails,
+                        TransactionSynchronizationRegistry transactionRegistry,
+                        @ConfigProperty(name = "playlimana.cover.max-size", defaultValue = "5M") MemorySize maxSize) {
+        this.blobStore = blobStore;
+        this.blobLeases = blobLeases;
+        this.coverFileRepository = coverFileRepository;
+        this.coverVariantRepository = coverVariantRepository;
+        this.coverThumbnails = coverThumbnails;
+        this.transactionRegistry = transactionRegistry;
+        this.maxSize = maxSize.asLongValue();
+    }
+
+    /**
+     * Streams an uploaded cover image into the blob store. This has to happen outside of a transaction, so a slow
+     * upload doesn't hold a database connection. The blob isn't deleted until {@link #finishStaged} is called
+     * after the transaction that references it.
+     *
+     * @return the staged cover or {@code null} if the content isn't a supported image or is too large
+     */
+    public StagedCover stage(InputStream content) throws IOException {
+        // the type is checked before anything is written
+        byte[] header = new byte[ImageSniffer.HEADER_LENGTH];
+        int headerLength = content.readNBytes(header, 0, header.length);
+        String contentType = ImageSniffer.contentType(header, headerLength);
+        if (contentType == null) {
+            logger.warn("cover was rejected because it isn't a supported image");
+            return null;
+        }
+
+        StoredBlob blob;
+        try {
+            blob = blobLeases.put(new LimitedInputStream(
+                    new SequenceInputStream(new ByteArrayInputStream(header, 0, headerLength), content), maxSize));
+        } catch (SizeLimitExceededException e) {
+            logger.warn("cover was rejected because it is larger than {} bytes", maxSize);
+            return null;
+        }
+        return new StagedCover(blob.hash(), blob.size(), contentType);
+    }
+
+    /**
+     * Has to be called once the transaction that should reference a staged cover is finished, whether it was
+     * committed or not. Variants of a committed cover are created, an unreferenced blob is deleted.
+     */
+    public void finishStaged(StagedCover stagedCover, boolean isCommitted) {
+        blobLeases.release(stagedCover.hash());
+        if (isCommitted) {
+            coverThumbnails.generateAsync(stagedCover.hash());
+        }
+        deleteIfUnreferenced(stagedCover.hash());
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public InputStream open(String hash) throws IOException {
+        return blobStore.open(hash);
+    }
+
+    public Optional<Path> localPath(String hash) {
+        return blobStore.localPath(hash);
+    }
+
+    /**
+     * The smallest variant of a cover that is at least as large as requested.
+     *
+     * @return the variant or {@code null} if the original has to be served, e.g. because it is smaller
+     * or its variants aren't created yet
+     */
+    @Transactional
+    public CoverVariantEntity findVariant(CoverFileEntity coverFile, int size) {
+        return coverVariantRepository.findVariant(coverFile.getContentHash(), size);
+    }
+
+    /**
+     * Marks the blob of a cover that is deleted or replaced in the current transaction,
+     * it is deleted after the transaction if no other cover uses it.
+     */
+    public void release(CoverFileEntity coverFile) {
+        if (coverFile != null && coverFile.getContentHash() != null) {
+            afterTransaction(coverFile.getContentHash());
+        }
+    }
+
+    private void afterTransaction(String hash) {
+        if (transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            return;
+        }
+
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+                // nothing to do before the commit
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                deleteIfUnreferenced(hash);
+            }
+        });
+    }
+
+    private void deleteIfUnreferenced(String hash) {
+        try {
+            QuarkusTransaction.requiringNew().run(() -> deleteWithVariantsIfUnreferenced(hash));
+        } catch (Exception e) {
+            // an orphaned blob only wastes space
+            logger.error("couldn't delete unreferenced blob {}: {}", hash, e.getMessage());
+        }
+    }
+
+    // the variants of an image are deleted with it, their blobs only if they aren't used otherwise,
+    // files are deleted while the leases are locked, so no upload of the same content can take a lease in between
+    private void deleteWithVariantsIfUnreferenced(String hash) {
+        if (!isUnreferenced(hash)) {
+            return;
+        }
+        List<String> unreferenced = new ArrayList<>();
+        unreferenced.add(hash);
+        for (CoverVariantEntity variant : coverVariantRepository.findByOriginalHash(hash)) {
+            coverVariantRepository.delete(variant);
+            coverVariantRepository.flush();
+            if (isUnreferenced(variant.getContentHash())) {
+                unreferenced.add(variant.getContentHash());
+            }
+        }
+        try {
+            for (String unreferencedHash : unreferenced) {
+                blobLeases.delete(unreferencedHash);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean isUnreferenced(String hash) {
+        return blobLeases.lockIfUnleased(hash) && coverFileRepository.countByHash(hash) == 0
+                && coverVariantRepository.countByHash(hash) == 0;
+    }
+
+    // covers from before the blob store are moved there in batches with a transaction each, so only a few images
+    // are in memory and a long migration doesn't hold one transaction, ids that fail are skipped
+    void migrateLegacyCovers(@Observes StartupEvent event) {
+        long afterId = 0;
+        int migrated = 0;
+        List<Long> coverFileIds;
+        do {
+            long batchAfterId = afterId;
+            coverFileIds = QuarkusTransaction.requiringNew()
+                    .call(() -> coverFileRepository.findIdsWithoutHash(batchAfterId, MIGRATION_BATCH_SIZE));
+            if (coverFileIds.isEmpty()) {
+                break;
+            }
+            migrated += migrateLegacyCovers(coverFileIds);
+            afterId = coverFileIds.get(coverFileIds.size() - 1);
+        } while (coverFileIds.size() == MIGRATION_BATCH_SIZE);
+        if (migrated > 0) {
+            logger.info("moved {} cover files to the blob store", migrated);
+        }
+    }
+
+    private int migrateLegacyCovers(List<Long> coverFileIds) {
+        // the blobs are protected until the batch that references them is committed
+        List<String> leasedHashes = new ArrayList<>();
+        try {
+            return QuarkusTransaction.requiringNew().call(() -> {
+                int migrated = 0;
+                for (Long coverFileId : coverFileIds) {
+                    CoverFileEntity coverFile = coverFileRepository.findById(coverFileId);
+                    byte[] data = coverFile.getLegacyData();
+                    if (data == null || data.length == 0) {
+                        logger.warn("cover file {} has neither a blob nor data", coverFileId);
+                        continue;
+                    }
+                    try {
+                        StoredBlob blob = blobLeases.put(new ByteArrayInputStream(data));
+                        leasedHashes.add(blob.hash());
+                        coverFile.setContentHash(blob.hash());
+                        coverFile.setFileSize(blob.size());
+                        coverFile.clearLegacyData();
+                        coverFileRepository.flush();
+                        coverFileRepository.getEntityManager().detach(coverFile);
+                        migrated++;
+                    } catch (IOException e) {
+                        logger.error("couldn't move cover file {} to the blob store: {}", coverFileId, e.getMessage());
+                    }
+                }
+                return migrated;
+            });
+        } catch (Exception e) {
+            logger.error("couldn't move cover files {} to the blob store: {}", coverFileIds, e.getMessage());
+            return 0;
+        } finally {
+            leasedHashes.forEach(blobLeases::release);
+        }
+    }
+
+    private static class SizeLimitExceededException extends IOException {
+        SizeLimitExceededException() {
+            super("size limit exceeded");
+        }
+    }
+
+    // fails as soon as more than maxSize bytes are read, so a too large upload isn't written completely
+    private static class LimitedInputStream extends FilterInputStream {
+        private final long maxSize;
+        private long count;
+
+        LimitedInputStream(InputStream in, long maxSize) {
+            super(in);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int n) throws SizeLimitExceededException {
+            count += n;
+            if (count > maxSize) {
+                throw new SizeLimitExceededException();
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package org.playlimana.storage;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.interceptor.Interceptor;
+import org.playlimana.model.entity.CoverVariantEntity;
+import org.playlimana.model.repository.CoverFileRepository;
+import org.playlimana.model.repository.CoverVariantRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates resized variants of cover images, so grids don't have to load the full-size images.
+ * Variants are created in the background after the upload is committed and stored in the {@link BlobStore}
+ * like the original. Until they exist, the original is served instead.
+ */
+@ApplicationScoped
+public class CoverThumbnails {
+
+    /**
+     * Sizes of the variants in pixels, the length of the longer side.
+     */
+    public static final List<Integer> VARIANT_SIZES = List.of(64, 256, 640);
+
+    public static final String JPEG = "image/jpeg";
+    public static final String PNG = "image/png";
+
+    private static final Logger logger = LoggerFactory.getLogger(CoverThumbnails.class);
+    private static final float JPEG_QUALITY = 0.85f;
+    private static final long MAX_PIXELS = 50_000_000L;
+
+    private final BlobStore blobStore;
+    private final BlobLeases blobLeases;
+    private final CoverFileRepository coverFileRepository;
+    private final CoverVariantRepository coverVariantRepository;
+
+    // decoding an image needs a lot of memory, so only one is resized at a time
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cover-thumbnails");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Inject
+    public CoverThumbnails(BlobStore blobStore, BlobLeases blobLeases, CoverFileRepository coverFileRepository,
+                           CoverVariantRepository coverVariantRepository) {
+        this.blobStore = blobStore;
+        this.blobLeases = blobLeases;
+        this.coverFileRepository = coverFileRepository;
+        this.coverVariantRepository = coverVariantRepository;
+    }
+
+    /**
+     * Creates the variants of an image in the background. Has to be called after the transaction that
+     * references the image is committed.
+     */
+    public void generateAsync(String originalHash) {
+        executor.execute(() -> generate(originalHash));
+    }
+
+    void generate(String originalHash) {
+        try {
+            if (QuarkusTransaction.requiringNew().call(() -> coverVariantRepository.countByOriginalHash(originalHash)) > 0) {
+                return;
+            }
+
+            BufferedImage image;
+            try (InputStream in = blobStore.open(originalHash)) {
+                image = read(in);
+            }
+            if (image == null) {
+                // e.g. WebP or SVG, the original is served for every size
+                logger.info("no variants for cover {}, the image format isn't supported", originalHash);
+                return;
+            }
+
+            for (int size : VARIANT_SIZES) {
+                if (Math.max(image.getWidth(), image.getHeight()) <= size) {
+                    // images are never enlarged, the original is served instead
+                    break;
+                }
+                storeVariant(originalHash, size, resize(image, size));
+            }
+        } catch (Exception e) {
+            // without variants the original is served, so nothing is lost
+            logger.error("couldn't create variants of cover {}: {}", originalHash, e.getMessage());
+        }
+    }
+
+    private void storeVariant(String originalHash, int size, BufferedImage resized) throws IOException {
+        String contentType = resized.getColorModel().hasAlpha() ? PNG : JPEG;
+        StoredBlob blob = blobLeases.put(new ByteArrayInputStream(encode(resized, contentType)));
+
+        boolean isStored;
+        try {
+            isStored = QuarkusTransaction.requiringNew().call(() -> {
+                // the cover may have been replaced while the variant was created
+                if (coverFileRepository.countByHash(originalHash) == 0) {
+                    return false;
+                }
+                CoverVariantEntity variant = new CoverVariantEntity();
+                variant.setOriginalHash(originalHash);
+                variant.setVariantSize(size);
+                variant.setContentHash(blob.hash());
+                variant.setFileSize(blob.size());
+                variant.setContentType(contentType);
+                coverVariantRepository.persist(variant);
+                return true;
+            });
+        } finally {
+            blobLeases.release(blob.hash());
+        }
+
+        if (!isStored) {
+            QuarkusTransaction.requiringNew().run(() -> {
+                if (blobLeases.lockIfUnleased(blob.hash()) && coverFileRepository.countByHash(blob.hash())
+                        + coverVariantRepository.countByHash(blob.hash()) == 0) {
+                    try {
+                        blobLeases.delete(blob.hash());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        }
+    }
+
+    // the size is checked before decoding, a small file can contain an image that needs gigabytes of memory
+    private static BufferedImage read(InputStream in) throws IOException {
+        try (ImageInputStream imageIn = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = imageIn != null ? ImageIO.getImageReaders(imageIn) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageIn, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS) {
+                    throw new IOException("image has more than " + MAX_PIXELS + " pixels");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales the image down so its longer side has the given size. Large images are halved step by step first,
+     * scaling them down at once with bilinear interpolation would skip most of the pixels.
+     */
+    public static BufferedImage resize(BufferedImage image, int size) {
+        double scale = (double) size / Math.max(image.getWidth(), image.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    public static byte[] encode(BufferedImage image, String contentType) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (PNG.equals(contentType)) {
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(imageOut);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    // covers from before variants existed, after the legacy covers are moved to the blob store
+    void generateMissingVariants(@Observes @Priority(Interceptor.Priority.LIBRARY_AFTER) StartupEvent event) {
+        List<String> hashes = QuarkusTransaction.requiringNew().call(coverVariantRepository::findHashesWithoutVariants);
+        hashes.forEach(this::generateAsync);
+        if (!hashes.isEmpty()) {
+            logger.info("creating variants of {} covers in the background", hashes.size());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,114 @@
+package org.playlimana.storage;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * {@link BlobStore} on the local file system. A blob with hash {@code abcdef...} is stored as
+ * {@code <directory>/ab/cd/abcdef...}, uploads are written to {@code <directory>/tmp} first and then moved
+ * into place, so a blob is never visible half written.
+ */
+@ApplicationScoped
+public class LocalFileBlobStore implements BlobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalFileBlobStore.class);
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path directory;
+
+    @Inject
+    public LocalFileBlobStore(@ConfigProperty(name = "playlimana.blob-store.directory", defaultValue = "data/blobs")
+                              String directory) {
+        this(Path.of(directory));
+    }
+
+    public LocalFileBlobStore(Path directory) {
+        this.directory = directory.toAbsolutePath();
+    }
+
+    @Override
+    public StoredBlob put(InputStream content, Consumer<String> beforeStore) throws IOException {
+        Path tempDirectory = directory.resolve("tmp");
+        Files.createDirectories(tempDirectory);
+        Path tempFile = Files.createTempFile(tempDirectory, "upload-", ".tmp");
+
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                // not closed, the stream belongs to the caller
+                size = new DigestInputStream(content, digest).transferTo(out);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            beforeStore.accept(hash);
+
+            Path target = path(hash);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                // replacing a blob that was stored concurrently is fine, the content is the same
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                logger.info("stored blob {} with {} bytes", hash, size);
+            }
+            return new StoredBlob(hash, size);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public InputStream open(String hash) throws IOException {
+        return Files.newInputStream(path(hash));
+    }
+
+    @Override
+    public Optional<Path> localPath(String hash) {
+        Path path = path(hash);
+        return Files.exists(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    @Override
+    public boolean exists(String hash) {
+        return Files.exists(path(hash));
+    }
+
+    @Override
+    public void delete(String hash) throws IOException {
+        if (Files.deleteIfExists(path(hash))) {
+            logger.info("deleted blob {}", hash);
+        }
+    }
+
+    Path path(String hash) {
+        // the hash becomes part of a path, so nothing but a SHA-256 hex string is accepted
+        if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+            throw new IllegalArgumentException("invalid blob hash: " + hash);
+        }
+        return directory.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has to support SHA-256
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
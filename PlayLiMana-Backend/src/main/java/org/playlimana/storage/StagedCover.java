@@ -0,0 +1,11 @@
+package org.playlimana.storage;
+
+/**
+ * A cover image that was written to the {@link BlobStore} but isn't referenced by a cover file yet.
+ *
+ * @param hash        key of the blob
+ * @param size        size of the image in bytes
+ * @param contentType type detected from the content of the image
+ */
+public record StagedCover(String hash, long size, String contentType) {
+}
@@ -0,0 +1,10 @@
+package org.playlimana.storage;
+
+/**
+ * A blob that was written to a {@link BlobStore}.
+ *
+ * @param hash SHA-256 of the content as lowercase hex, the key of the blob
+ * @param size size of the content in bytes
+ */
+public record StoredBlob(String hash, long size) {
+}
@@ -0,0 +1,73 @@
+package org.playlimana.utils;
+
+/**
+ * A single byte range of an HTTP {@code Range: bytes=...} request.
+ *
+ * @param start  offset of the first byte
+ * @param length number of bytes
+ */
+public record ByteRange(long start, long length) {
+
+    /**
+     * The range can't be served, answered with 416.
+     */
+    public static final ByteRange UNSATISFIABLE = new ByteRange(-1, 0);
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    /**
+     * Parses a Range header for content of the given size.
+     * Only a single range is supported, for everything else the whole content is sent,
+     * which is allowed since servers may ignore the Range header.
+     *
+     * @return the range, {@link #UNSATISFIABLE} or {@code null} if the whole content should be sent
+     */
+    public static ByteRange parse(String rangeHeader, long size) {
+        if (rangeHeader == null || !rangeHeader.startsWith(BYTES_UNIT)) {
+            return null;
+        }
+        String range = rangeHeader.substring(BYTES_UNIT.length()).trim();
+        int dash = range.indexOf('-');
+        if (dash < 0 || range.indexOf(',') >= 0) {
+            return null;
+        }
+
+        try {
+            String first = range.substring(0, dash).trim();
+            String last = range.substring(dash + 1).trim();
+
+            if (first.isEmpty()) {
+                // suffix range, the last n bytes
+                long suffixLength = Long.parseLong(last);
+                if (suffixLength <= 0 || size == 0) {
+                    return UNSATISFIABLE;
+                }
+                long length = Math.min(suffixLength, size);
+                return new ByteRange(size - length, length);
+            }
+
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            if (start < 0 || start >= size) {
+                return UNSATISFIABLE;
+            }
+            if (end < start) {
+                return null;
+            }
+            return new ByteRange(start, end - start + 1);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public long end() {
+        return start + length - 1;
+    }
+
+    /**
+     * @return value of the Content-Range header for this range
+     */
+    public String toContentRange(long size) {
+        return "bytes " + start + "-" + end() + "/" + size;
+    }
+}
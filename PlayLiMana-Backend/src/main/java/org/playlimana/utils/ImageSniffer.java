@@ -0,0 +1,55 @@
+package org.playlimana.utils;
+
+/**
+ * Detects the type of an image from its first bytes, so uploads don't depend on the content type sent by the client.
+ */
+public class ImageSniffer {
+
+    /**
+     * Number of bytes needed to detect every supported type.
+     */
+    public static final int HEADER_LENGTH = 12;
+
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] GIF = {'G', 'I', 'F', '8'};
+    private static final byte[] RIFF = {'R', 'I', 'F', 'F'};
+    private static final byte[] WEBP = {'W', 'E', 'B', 'P'};
+
+    private ImageSniffer() {
+        // private constructor to hide the public one (sonarqube)
+    }
+
+    /**
+     * @param header the first bytes of the file
+     * @param length number of valid bytes in header
+     * @return the content type or {@code null} if it isn't a supported image
+     */
+    public static String contentType(byte[] header, int length) {
+        if (startsWith(header, length, 0, JPEG)) {
+            return "image/jpeg";
+        }
+        if (startsWith(header, length, 0, PNG)) {
+            return "image/png";
+        }
+        if (startsWith(header, length, 0, GIF)) {
+            return "image/gif";
+        }
+        if (startsWith(header, length, 0, RIFF) && startsWith(header, length, 8, WEBP)) {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] header, int length, int offset, byte[] magic) {
+        if (length < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (header[offset + i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,129 @@
+package org.playlimana.utils;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Set of primitive longs with open addressing, e.g. for song IDs. Needs about 8 to 16 bytes per element,
+ * a {@code HashSet<Long>} needs more than 50 bytes for the entry and the boxed long.
+ * Not thread-safe.
+ */
+public class LongHashSet {
+
+    private static final int MIN_CAPACITY = 4;
+    // 0 marks an empty slot, so 0 itself is tracked separately
+    private static final long EMPTY = 0L;
+
+    private long[] slots;
+    private boolean hasZero;
+    private int size;
+
+    public LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongHashSet(int expectedSize) {
+        // at most half of the slots are used, so probe sequences stay short
+        slots = new long[Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, expectedSize) * 2 - 1) << 1)];
+    }
+
+    /**
+     * @return true if the value wasn't in the set yet
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            size++;
+            return true;
+        }
+
+        int mask = slots.length - 1;
+        int slot = hash(value) & mask;
+        while (slots[slot] != EMPTY) {
+            if (slots[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = value;
+        size++;
+        if (size * 2 > slots.length) {
+            grow();
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return hasZero;
+        }
+
+        int mask = slots.length - 1;
+        int slot = hash(value) & mask;
+        while (slots[slot] != EMPTY) {
+            if (slots[slot] == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(LongConsumer action) {
+        if (hasZero) {
+            action.accept(EMPTY);
+        }
+        for (long value : slots) {
+            if (value != EMPTY) {
+                action.accept(value);
+            }
+        }
+    }
+
+    /**
+     * Number of values that are in both sets, iterates over the smaller one.
+     */
+    public int intersectionSize(LongHashSet other) {
+        LongHashSet smaller = size <= other.size ? this : other;
+        LongHashSet larger = smaller == this ? other : this;
+
+        int count = smaller.hasZero && larger.hasZero ? 1 : 0;
+        for (long value : smaller.slots) {
+            if (value != EMPTY && larger.contains(value)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void grow() {
+        long[] oldSlots = slots;
+        slots = new long[oldSlots.length * 2];
+        int mask = slots.length - 1;
+        for (long value : oldSlots) {
+            if (value != EMPTY) {
+                int slot = hash(value) & mask;
+                while (slots[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = value;
+            }
+        }
+    }
+
+    // IDs are consecutive, the multiplication spreads them over the whole table
+    private static int hash(long value) {
+        long mixed = value * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+}
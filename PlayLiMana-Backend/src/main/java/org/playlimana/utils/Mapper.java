@@ -1,19 +1,27 @@
 package org.playlimana.utils;
 
 import org.playlimana.model.dto.PlaylistDTO;
+import org.playlimana.model.dto.PlaylistSummaryDTO;
 import org.playlimana.model.dto.SongDTO;
 import org.playlimana.model.entity.PlaylistEntity;
 import org.playlimana.model.entity.SongEntity;
 import org.playlimana.model.entity.SongInPlaylistEntity;
+import org.playlimana.storage.CoverThumbnails;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 // removed unused import statement (sonarqube)
 /**
  * Utility class for mapping between DTOs and Entities in the Playlimana application.
@@ -25,6 +33,10 @@ public class Mapper {
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+    private static final int COVER_VERSION_LENGTH = 16;
+    static final int DATE_LENGTH = 10;
+    static final int DATE_TIME_LENGTH = 19;
+    private static final String COVER_PATH = "/api/v1/playlists/";
 
     private Mapper(){
         // private constructor to hide the public one (sonarqube)
@@ -40,6 +52,10 @@ public class Mapper {
         if (dateString == null || dateString.isBlank()) {
             return null;
         }
+        LocalDate date = dateString.length() == DATE_LENGTH ? parseIsoDate(dateString) : null;
+        if (date != null) {
+            return date;
+        }
         try {
             return LocalDate.parse(dateString, DATE_FORMATTER);
         } catch (DateTimeParseException e) {
@@ -59,7 +75,8 @@ public class Mapper {
         if (date == null) {
             return null;
         }
-        return date.format(DATE_FORMATTER);
+        char[] chars = new char[DATE_LENGTH];
+        return formatDate(date, chars) ? new String(chars) : date.format(DATE_FORMATTER);
     }
 
 
@@ -74,6 +91,12 @@ public class Mapper {
             return null;
         }
 
+        // the usual formats are parsed without the formatter, which needs exceptions for the date only format
+        LocalDateTime parsed = parseIsoDateTime(dateString);
+        if (parsed != null) {
+            return parsed;
+        }
+
         try {
             return LocalDateTime.parse(dateString, DATE_TIME_FORMATTER);
         } catch (DateTimeParseException e1) {
@@ -100,7 +123,109 @@ public class Mapper {
         if (date == null) {
             return null;
         }
-        return date.format(DATE_TIME_FORMATTER);
+        char[] chars = new char[DATE_TIME_LENGTH];
+        return formatDateTime(date, chars) ? new String(chars) : date.format(DATE_TIME_FORMATTER);
+    }
+
+
+    /**
+     * Writes the date as "yyyy-MM-dd" into the first {@link #DATE_LENGTH} chars of the buffer.
+     *
+     * @return {@code false} if the year has more or less than four digits and the formatter has to be used
+     */
+    static boolean formatDate(LocalDate date, char[] buffer) {
+        return formatDate(date.getYear(), date.getMonthValue(), date.getDayOfMonth(), buffer);
+    }
+
+
+    /**
+     * Writes the date as "yyyy-MM-dd'T'HH:mm:ss" into the first {@link #DATE_TIME_LENGTH} chars of the buffer.
+     *
+     * @return {@code false} if the year has more or less than four digits and the formatter has to be used
+     */
+    static boolean formatDateTime(LocalDateTime date, char[] buffer) {
+        if (!formatDate(date.getYear(), date.getMonthValue(), date.getDayOfMonth(), buffer)) {
+            return false;
+        }
+        buffer[10] = 'T';
+        writeTwoDigits(buffer, 11, date.getHour());
+        buffer[13] = ':';
+        writeTwoDigits(buffer, 14, date.getMinute());
+        buffer[16] = ':';
+        writeTwoDigits(buffer, 17, date.getSecond());
+        return true;
+    }
+
+
+    private static boolean formatDate(int year, int month, int day, char[] buffer) {
+        // "yyyy" is the year of era, so years before 1 are formatted differently
+        if (year < 1 || year > 9999) {
+            return false;
+        }
+        writeTwoDigits(buffer, 0, year / 100);
+        writeTwoDigits(buffer, 2, year % 100);
+        buffer[4] = '-';
+        writeTwoDigits(buffer, 5, month);
+        buffer[7] = '-';
+        writeTwoDigits(buffer, 8, day);
+        return true;
+    }
+
+
+    private static void writeTwoDigits(char[] buffer, int offset, int value) {
+        buffer[offset] = (char) ('0' + value / 10);
+        buffer[offset + 1] = (char) ('0' + value % 10);
+    }
+
+
+    // "yyyy-MM-dd'T'HH:mm:ss" or "yyyy-MM-dd", null for everything else including invalid values,
+    // so the formatter decides about them like before
+    private static LocalDateTime parseIsoDateTime(String dateString) {
+        if (dateString.length() == DATE_LENGTH) {
+            LocalDate date = parseIsoDate(dateString);
+            return date != null ? date.atStartOfDay() : null;
+        }
+        if (dateString.length() != DATE_TIME_LENGTH || dateString.charAt(10) != 'T'
+                || dateString.charAt(13) != ':' || dateString.charAt(16) != ':') {
+            return null;
+        }
+        LocalDate date = parseIsoDate(dateString);
+        int hour = parseDigits(dateString, 11, 2);
+        int minute = parseDigits(dateString, 14, 2);
+        int second = parseDigits(dateString, 17, 2);
+        if (date == null || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+        return date.atTime(hour, minute, second);
+    }
+
+
+    // the first ten chars as "yyyy-MM-dd"
+    private static LocalDate parseIsoDate(String dateString) {
+        if (dateString.charAt(4) != '-' || dateString.charAt(7) != '-') {
+            return null;
+        }
+        int year = parseDigits(dateString, 0, 4);
+        int month = parseDigits(dateString, 5, 2);
+        int day = parseDigits(dateString, 8, 2);
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+
+    // -1 if one of the chars isn't a digit
+    private static int parseDigits(String string, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = string.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
     }
 
 
@@ -183,11 +308,11 @@ public class Mapper {
             return null;
         }
 
-        List<SongDTO> songDTOs = new ArrayList<>();
+        List<SongInPlaylistEntity> sips = playlistEntity.getSongs();
+        List<SongDTO> songDTOs = new ArrayList<>(sips != null ? sips.size() : 0);
 
-        if (playlistEntity.getSongs() != null) {
-            int length = playlistEntity.getSongs().size();
-            List<SongInPlaylistEntity> sips = playlistEntity.getSongs();
+        if (sips != null) {
+            int length = sips.size();
             SongInPlaylistEntity currentSip;
             SongEntity currentSong;
 
@@ -198,6 +323,7 @@ public class Mapper {
             }
         }
 
+        String coverUrl = toCoverUrl(playlistEntity);
         return new PlaylistDTO(
                 playlistEntity.getPlaylistId(),
                 playlistEntity.getPlaylistName(),
@@ -207,22 +333,90 @@ public class Mapper {
                 songDTOs,
                 playlistEntity.getNumberOfSongs(),
                 playlistEntity.getPlaytime(),
-                (playlistEntity.getCoverFile() != null)
-                        ? ConfigHolder.getBackendUrl() + "/api/v1/playlists/" + playlistEntity.getPlaylistId() + "/cover"
-                        : playlistEntity.getCoverUrl(),
+                coverUrl,
+                toCoverVariantUrls(playlistEntity, coverUrl),
                 Mapper.mapLocalDateTimeToString(addDate)
         );
     }
 
+    /**
+     * Maps a {@link PlaylistEntity} to a {@link PlaylistSummaryDTO} without touching its songs.
+     *
+     * @param playlistEntity the entity to map
+     * @param addDate        date when the playlist was added to the library
+     * @return the mapped PlaylistSummaryDTO or {@code null} if input is {@code null}
+     */
+    public static PlaylistSummaryDTO toPlaylistSummaryDTO(PlaylistEntity playlistEntity, LocalDateTime addDate) {
+        if (playlistEntity == null) {
+            return null;
+        }
+
+        String coverUrl = toCoverUrl(playlistEntity);
+        return new PlaylistSummaryDTO(
+                playlistEntity.getPlaylistId(),
+                playlistEntity.getPlaylistName(),
+                playlistEntity.getDescription(),
+                playlistEntity.getVisibility(),
+                playlistEntity.getSorting(),
+                playlistEntity.getNumberOfSongs(),
+                playlistEntity.getPlaytime(),
+                coverUrl,
+                toCoverVariantUrls(playlistEntity, coverUrl),
+                Mapper.mapLocalDateTimeToString(addDate)
+        );
+    }
+
+    // dynamic cover URL if a cover file is present, otherwise the external one
+    static String toCoverUrl(PlaylistEntity playlistEntity) {
+        if (playlistEntity.getCoverFile() == null) {
+            return playlistEntity.getCoverUrl();
+        }
+        String backendUrl = ConfigHolder.getBackendUrl();
+        String version = toCoverVersion(playlistEntity.getCoverFile().getContentHash());
+        StringBuilder coverUrl = new StringBuilder(backendUrl.length() + COVER_PATH.length() + 48)
+                .append(backendUrl).append(COVER_PATH).append(playlistEntity.getPlaylistId()).append("/cover");
+        // the URL changes with the image, so clients can cache it forever
+        if (version != null) {
+            coverUrl.append("?v=").append(version);
+        }
+        return coverUrl.toString();
+    }
+
+    // one URL per variant size, the cover endpoint falls back to the original until the variant exists
+    static Map<Integer, String> toCoverVariantUrls(PlaylistEntity playlistEntity, String coverUrl) {
+        if (playlistEntity.getCoverFile() == null) {
+            return null;
+        }
+        String prefix = coverUrl + (coverUrl.indexOf('?') >= 0 ? "&size=" : "?size=");
+        Map<Integer, String> variantUrls = new LinkedHashMap<>(CoverThumbnails.VARIANT_SIZES.size() * 2);
+        for (int size : CoverThumbnails.VARIANT_SIZES) {
+            variantUrls.put(size, prefix + size);
+        }
+        return variantUrls;
+    }
+
+    /**
+     * Version of a cover for its URL, a prefix of the content hash.
+     *
+     * @return the version or {@code null} if the hash is unknown
+     */
+    public static String toCoverVersion(String contentHash) {
+        if (contentHash == null || contentHash.length() < COVER_VERSION_LENGTH) {
+            return null;
+        }
+        return contentHash.substring(0, COVER_VERSION_LENGTH);
+    }
+
     /**
      * Maps a {@link PlaylistDTO} to a {@link PlaylistEntity}.
      * It does NOT carry over the playlistId!
-     * Reconstructs song-playlist relationships and handles ID setting.
+     * Reconstructs song-playlist relationships with the already resolved song entities.
      *
-     * @param playlistDTO the DTO to map
+     * @param playlistDTO  the DTO to map
+     * @param songEntities the song entities in the order of {@code playlistDTO.songs()}, invalid songs are {@code null}
      * @return the mapped PlaylistEntity or {@code null} if input is {@code null}
      */
-    public static PlaylistEntity toPlaylistEntity(PlaylistDTO playlistDTO) {
+    public static PlaylistEntity toPlaylistEntity(PlaylistDTO playlistDTO, List<SongEntity> songEntities) {
         if (playlistDTO == null) {
             return null;
         }
@@ -235,13 +429,19 @@ public class Mapper {
                 playlistDTO.sorting()
         );
 
-        if (playlistDTO.songs() != null) {
-            for (SongDTO songDTO : playlistDTO.songs()) {
+        if (playlistDTO.songs() != null && songEntities != null) {
+            // a song can only be in a playlist once
+            Set<Long> songIds = new HashSet<>(songEntities.size() * 4 / 3 + 1);
+            for (int i = 0; i < songEntities.size(); i++) {
+                SongEntity songEntity = songEntities.get(i);
+                if (songEntity == null || !songIds.add(songEntity.getSongId())) {
+                    continue;
+                }
                 SongInPlaylistEntity newRelation = new SongInPlaylistEntity(
-                        mapStringToLocalDateTime(songDTO.addDate()),
+                        mapStringToLocalDateTime(playlistDTO.songs().get(i).addDate()),
                         playlistEntity,
-                        toSongEntity(songDTO));
-                playlistEntity.getSongs().add(newRelation);
+                        songEntity);
+                playlistEntity.addSong(newRelation);
             }
         }
 
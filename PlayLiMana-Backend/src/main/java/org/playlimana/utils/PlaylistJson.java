@@ -0,0 +1,147 @@
+package org.playlimana.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.playlimana.model.dto.PlaylistDTO;
+import org.playlimana.model.entity.PlaylistEntity;
+import org.playlimana.model.entity.SongEntity;
+import org.playlimana.model.entity.SongInPlaylistEntity;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A playlist that is serialized straight from its entities to the same JSON as {@link PlaylistDTO},
+ * without creating a {@link org.playlimana.model.dto.SongDTO} and two date strings per song.
+ * Only for read-only responses, and it has to be serialized before the transaction ends,
+ * because the entities can't be used after it.
+ * The field names have to be the record components of {@link PlaylistDTO} and
+ * {@link org.playlimana.model.dto.SongDTO}, which MapperTests checks.
+ *
+ * @param playlist the playlist with its songs
+ * @param addDate  date when the playlist was added to the library
+ */
+@JsonSerialize(using = PlaylistJson.Serializer.class)
+public record PlaylistJson(PlaylistEntity playlist, LocalDateTime addDate) {
+
+    public static class Serializer extends StdSerializer<PlaylistJson> {
+
+        public Serializer() {
+            super(PlaylistJson.class);
+        }
+
+        @Override
+        public void serialize(PlaylistJson value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            PlaylistEntity playlist = value.playlist();
+            // reused for all dates of the playlist
+            char[] buffer = new char[Mapper.DATE_TIME_LENGTH];
+
+            generator.writeStartObject();
+            generator.writeNumberField("playlistId", playlist.getPlaylistId());
+            generator.writeStringField("playlistName", playlist.getPlaylistName());
+            generator.writeStringField("description", playlist.getDescription());
+            writeEnum(generator, "visibility", playlist.getVisibility());
+            writeEnum(generator, "sorting", playlist.getSorting());
+
+            generator.writeArrayFieldStart("songs");
+            List<SongInPlaylistEntity> sips = playlist.getSongs();
+            if (sips != null) {
+                for (int i = 0; i < sips.size(); i++) {
+                    SongInPlaylistEntity sip = sips.get(i);
+                    if (sip.getSong() != null) {
+                        writeSong(generator, sip.getSong(), i, sip.getAddDate(), buffer);
+                    } else {
+                        generator.writeNull();
+                    }
+                }
+            }
+            generator.writeEndArray();
+
+            generator.writeNumberField("numberOfSongs", playlist.getNumberOfSongs());
+            generator.writeNumberField("playtime", playlist.getPlaytime());
+            String coverUrl = Mapper.toCoverUrl(playlist);
+            generator.writeStringField("coverUrl", coverUrl);
+            writeCoverVariantUrls(generator, Mapper.toCoverVariantUrls(playlist, coverUrl));
+            generator.writeFieldName("addDate");
+            writeDateTime(generator, value.addDate(), buffer);
+            generator.writeEndObject();
+        }
+
+        private static void writeSong(JsonGenerator generator, SongEntity song, int position, LocalDateTime addDate,
+                                      char[] buffer) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("songId", song.getSongId());
+            generator.writeStringField("title", song.getTitle());
+            writeStrings(generator, "artists", song.getArtists());
+            generator.writeStringField("album", song.getAlbum());
+            writeStrings(generator, "genres", song.getGenres());
+            generator.writeNumberField("playtime", song.getPlaytime());
+            generator.writeFieldName("releaseDate");
+            writeDate(generator, song.getReleaseDate(), buffer);
+            writeStrings(generator, "linksForWebPlayer", song.getLinksForWebPlayer());
+            generator.writeStringField("coverUrl", song.getCoverUrl());
+            generator.writeNumberField("positionInPlaylist", position);
+            generator.writeFieldName("addDate");
+            writeDateTime(generator, addDate, buffer);
+            generator.writeEndObject();
+        }
+
+        private static void writeStrings(JsonGenerator generator, String name, List<String> values) throws IOException {
+            generator.writeFieldName(name);
+            if (values == null) {
+                generator.writeNull();
+                return;
+            }
+            generator.writeStartArray();
+            for (int i = 0; i < values.size(); i++) {
+                generator.writeString(values.get(i));
+            }
+            generator.writeEndArray();
+        }
+
+        private static void writeEnum(JsonGenerator generator, String name, Enum<?> value) throws IOException {
+            generator.writeStringField(name, value != null ? value.name() : null);
+        }
+
+        private static void writeCoverVariantUrls(JsonGenerator generator, Map<Integer, String> variantUrls)
+                throws IOException {
+            generator.writeFieldName("coverVariantUrls");
+            if (variantUrls == null) {
+                generator.writeNull();
+                return;
+            }
+            generator.writeStartObject();
+            for (Map.Entry<Integer, String> variantUrl : variantUrls.entrySet()) {
+                generator.writeStringField(String.valueOf(variantUrl.getKey()), variantUrl.getValue());
+            }
+            generator.writeEndObject();
+        }
+
+        private static void writeDate(JsonGenerator generator, LocalDate date, char[] buffer) throws IOException {
+            if (date == null) {
+                generator.writeNull();
+            } else if (Mapper.formatDate(date, buffer)) {
+                generator.writeString(buffer, 0, Mapper.DATE_LENGTH);
+            } else {
+                generator.writeString(Mapper.mapLocalDateToString(date));
+            }
+        }
+
+        private static void writeDateTime(JsonGenerator generator, LocalDateTime date, char[] buffer)
+                throws IOException {
+            if (date == null) {
+                generator.writeNull();
+            } else if (Mapper.formatDateTime(date, buffer)) {
+                generator.writeString(buffer, 0, Mapper.DATE_TIME_LENGTH);
+            } else {
+                generator.writeString(Mapper.mapLocalDateTimeToString(date));
+            }
+        }
+    }
+}
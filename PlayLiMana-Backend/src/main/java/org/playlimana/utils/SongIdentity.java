@@ -0,0 +1,177 @@
+package org.playlimana.utils;
+
+import org.playlimana.model.dto.SongDTO;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Computes the natural key of a song, so the same track sent by different users resolves to one {@link
+ * org.playlimana.model.entity.SongEntity}.
+ * If the first web player link identifies the track at a provider (e.g. a Spotify track URL or a YouTube video), the
+ * key is based on it, otherwise on normalized title, artists, album and playtime.
+ * The key is stored as SHA-256 hex so it has a fixed length for the unique index.
+ */
+public class SongIdentity {
+
+    public static final int KEY_LENGTH = 64;
+
+    private static final String SPOTIFY_TRACK_PATH = "/track/";
+    private static final String YOUTUBE_SHORTS_PATH = "/shorts/";
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    // query parameters that identify the track, e.g. ?i=<track> on Apple Music or ?id= on many players
+    private static final Set<String> IDENTIFYING_PARAMETERS = Set.of("v", "i", "id", "list", "track");
+    // query parameters that are known to be tracking or playback information, not part of the track
+    private static final Set<String> IGNORED_PARAMETERS = Set.of("si", "t", "feature", "ref", "fbclid", "gclid",
+            "igshid", "context", "nd");
+    private static final String UTM_PARAMETER_PREFIX = "utm_";
+
+    private SongIdentity() {
+        // private constructor to hide the public one (sonarqube)
+    }
+
+    public static String naturalKey(SongDTO songDTO) {
+        return naturalKey(songDTO.title(), songDTO.artists(), songDTO.album(), songDTO.playtime(),
+                songDTO.linksForWebPlayer());
+    }
+
+    public static String naturalKey(String title, List<String> artists, String album, long playtime,
+                                    List<String> linksForWebPlayer) {
+        String providerId = providerId(linksForWebPlayer);
+        String identity = providerId != null
+                ? "provider:" + providerId
+                : "meta:" + normalize(title) + '|' + normalizeArtists(artists) + '|' + normalize(album) + '|' + playtime;
+        return sha256(identity);
+    }
+
+    /**
+     * @return the provider and track of the first link, e.g. {@code spotify:4cOdK2wGLETKBW3PvgPWqT},
+     * or {@code null} if there is no usable link
+     */
+    static String providerId(List<String> linksForWebPlayer) {
+        if (linksForWebPlayer == null || linksForWebPlayer.isEmpty() || linksForWebPlayer.get(0) == null) {
+            return null;
+        }
+        String link = linksForWebPlayer.get(0).trim();
+        if (link.startsWith("spotify:track:")) {
+            return "spotify:" + link.substring("spotify:track:".length());
+        }
+
+        URI uri;
+        try {
+            uri = new URI(link);
+        } catch (URISyntaxException e) {
+            return null;
+        }
+        String host = uri.getHost();
+        String path = uri.getPath();
+        if (host == null || path == null || path.isEmpty() || "/".equals(path)) {
+            return null;
+        }
+        host = host.toLowerCase(Locale.ROOT);
+        if (host.endsWith("spotify.com") && path.contains(SPOTIFY_TRACK_PATH)) {
+            // the same track is linked with and without locale prefix, e.g. /intl-de/track/<id>
+            return "spotify:" + path.substring(path.indexOf(SPOTIFY_TRACK_PATH) + SPOTIFY_TRACK_PATH.length());
+        }
+        if (host.equals("youtu.be") || host.endsWith(".youtu.be")) {
+            return "youtube:" + firstSegment(path);
+        }
+        if (host.equals("youtube.com") || host.endsWith(".youtube.com")) {
+            // the video is identified by ?v=, /watch alone is the same for every video
+            String videoId = path.startsWith(YOUTUBE_SHORTS_PATH)
+                    ? firstSegment(path.substring(YOUTUBE_SHORTS_PATH.length()))
+                    : queryParameter(uri.getRawQuery(), "v");
+            return videoId != null && !videoId.isEmpty() ? "youtube:" + videoId : null;
+        }
+
+        String identifyingQuery = identifyingQuery(uri.getRawQuery());
+        if (identifyingQuery == null) {
+            // unknown parameters might identify the track, the link alone can't be trusted
+            return null;
+        }
+        String trimmedPath = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        return host + trimmedPath + (identifyingQuery.isEmpty() ? "" : "?" + identifyingQuery);
+    }
+
+    /**
+     * @return the identifying parameters of the query sorted by name, an empty string if there are none
+     * or {@code null} if the query has parameters that are neither identifying nor known to be ignorable
+     */
+    private static String identifyingQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return "";
+        }
+        List<String> identifying = new ArrayList<>();
+        for (String parameter : rawQuery.split("&")) {
+            int separator = parameter.indexOf('=');
+            String name = (separator >= 0 ? parameter.substring(0, separator) : parameter).toLowerCase(Locale.ROOT);
+            if (IDENTIFYING_PARAMETERS.contains(name)) {
+                identifying.add(name + parameter.substring(name.length()));
+            } else if (!name.isEmpty() && !IGNORED_PARAMETERS.contains(name)
+                    && !name.startsWith(UTM_PARAMETER_PREFIX)) {
+                return null;
+            }
+        }
+        identifying.sort(null);
+        return String.join("&", identifying);
+    }
+
+    private static String queryParameter(String rawQuery, String name) {
+        if (rawQuery == null) {
+            return null;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            if (parameter.startsWith(name + "=")) {
+                return parameter.substring(name.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    private static String firstSegment(String path) {
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = path.indexOf('/', start);
+        return path.substring(start, end >= 0 ? end : path.length());
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(value, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT).trim();
+        return WHITESPACE.matcher(normalized).replaceAll(" ");
+    }
+
+    // the order of artists differs between providers
+    private static String normalizeArtists(List<String> artists) {
+        if (artists == null) {
+            return "";
+        }
+        List<String> normalized = new ArrayList<>(artists.size());
+        for (String artist : artists) {
+            normalized.add(normalize(artist));
+        }
+        normalized.sort(null);
+        return String.join(",", normalized);
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has to support SHA-256
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.playlimana.validation;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Validates playlist names and descriptions. Allowed are letters, digits, space, {@code _-.}, general punctuation
+ * (U+2000-U+206F), miscellaneous symbols (U+2600-U+26FF) and the star U+2B50.
+ * Characters of the Basic Multilingual Plane are looked up in a table that is built once, so validating doesn't
+ * allocate anything, other code points are checked by their Unicode category.
+ */
+@ApplicationScoped
+public class PlaylistTextValidator {
+
+    public static final int MAX_LEN_NAME = 100;
+    public static final int MAX_LEN_DESCRIPTION = 250;
+
+    // one bit per BMP character
+    private static final long[] BMP_TABLE = new long[(Character.MAX_VALUE + 1) / Long.SIZE];
+
+    static {
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if (isAllowed(c)) {
+                BMP_TABLE[c >>> 6] |= 1L << c;
+            }
+        }
+    }
+
+    public ValidationResult validateName(String name) {
+        if (name == null) {
+            return ValidationResult.MISSING;
+        }
+        if (name.isBlank()) {
+            return ValidationResult.BLANK;
+        }
+        return validate(name, MAX_LEN_NAME);
+    }
+
+    public ValidationResult validateDescription(String description) {
+        if (description == null) {
+            return ValidationResult.MISSING;
+        }
+        return validate(description, MAX_LEN_DESCRIPTION);
+    }
+
+    /**
+     * @param characterLimit maximum length in UTF-16 chars
+     */
+    public ValidationResult validate(String text, int characterLimit) {
+        if (text.length() > characterLimit) {
+            return ValidationResult.TOO_LONG;
+        }
+
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (!Character.isSurrogate(c)) {
+                if ((BMP_TABLE[c >>> 6] & (1L << c)) == 0) {
+                    return ValidationResult.invalidCharacter(i, c);
+                }
+                i++;
+            } else {
+                // a lone surrogate is an invalid code point of its own
+                int codePoint = text.codePointAt(i);
+                if (!isAllowed(codePoint)) {
+                    return ValidationResult.invalidCharacter(i, codePoint);
+                }
+                i += Character.charCount(codePoint);
+            }
+        }
+        return ValidationResult.VALID;
+    }
+
+    // the same characters as the regex [\p{L}\p{N} _\-.] plus the ranges above
+    private static boolean isAllowed(int codePoint) {
+        switch (Character.getType(codePoint)) {
+            case Character.UPPERCASE_LETTER, Character.LOWERCASE_LETTER, Character.TITLECASE_LETTER,
+                 Character.MODIFIER_LETTER, Character.OTHER_LETTER,
+                 Character.DECIMAL_DIGIT_NUMBER, Character.LETTER_NUMBER, Character.OTHER_NUMBER:
+                return true;
+            default:
+                break;
+        }
+        return codePoint == ' ' || codePoint == '_' || codePoint == '-' || codePoint == '.'
+                || (codePoint >= 0x2000 && codePoint <= 0x206F)
+                || codePoint == 0x2B50
+                || (codePoint >= 0x2600 && codePoint <= 0x26FF);
+    }
+}
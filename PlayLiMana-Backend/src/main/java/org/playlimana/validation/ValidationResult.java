@@ -0,0 +1,47 @@
+package org.playlimana.validation;
+
+/**
+ * Result of validating a text, either {@link #VALID} or the first violation that was found.
+ *
+ * @param violation what is wrong, {@code null} if the text is valid
+ * @param index     UTF-16 index of the invalid character, otherwise -1
+ * @param codePoint the invalid character, otherwise -1
+ */
+public record ValidationResult(Violation violation, int index, int codePoint) {
+
+    public static final ValidationResult VALID = new ValidationResult(null, -1, -1);
+    static final ValidationResult MISSING = new ValidationResult(Violation.MISSING, -1, -1);
+    static final ValidationResult BLANK = new ValidationResult(Violation.BLANK, -1, -1);
+    static final ValidationResult TOO_LONG = new ValidationResult(Violation.TOO_LONG, -1, -1);
+
+    public enum Violation {
+        MISSING,
+        BLANK,
+        TOO_LONG,
+        INVALID_CHARACTER
+    }
+
+    static ValidationResult invalidCharacter(int index, int codePoint) {
+        return new ValidationResult(Violation.INVALID_CHARACTER, index, codePoint);
+    }
+
+    public boolean isValid() {
+        return violation == null;
+    }
+
+    /**
+     * @return a description of the violation for logs and error responses
+     */
+    public String message() {
+        if (violation == null) {
+            return "valid";
+        }
+        return switch (violation) {
+            case MISSING -> "is missing";
+            case BLANK -> "is blank";
+            case TOO_LONG -> "has too many characters";
+            case INVALID_CHARACTER -> "contains the invalid character U+" + Integer.toHexString(codePoint).toUpperCase()
+                    + " at index " + index;
+        };
+    }
+}
@@ -0,0 +1,43 @@
+package org.playlimana;
+
+import org.junit.jupiter.api.Test;
+import org.playlimana.utils.ByteRange;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteRangeTests {
+
+    private static final long SIZE = 1000;
+
+    @Test
+    void testParse_ClosedRange() {
+        ByteRange range = ByteRange.parse("bytes=0-499", SIZE);
+
+        assertEquals(new ByteRange(0, 500), range);
+        assertEquals("bytes 0-499/1000", range.toContentRange(SIZE));
+    }
+
+    @Test
+    void testParse_OpenAndSuffixRanges() {
+        assertEquals(new ByteRange(900, 100), ByteRange.parse("bytes=900-", SIZE));
+        assertEquals(new ByteRange(800, 200), ByteRange.parse("bytes=-200", SIZE));
+        // end and suffix are cut at the end of the content
+        assertEquals(new ByteRange(900, 100), ByteRange.parse("bytes=900-5000", SIZE));
+        assertEquals(new ByteRange(0, SIZE), ByteRange.parse("bytes=-5000", SIZE));
+    }
+
+    @Test
+    void testParse_Unsatisfiable() {
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=1000-", SIZE));
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=-0", SIZE));
+    }
+
+    @Test
+    void testParse_UnsupportedOrInvalid_SendsWholeContent() {
+        assertNull(ByteRange.parse(null, SIZE));
+        assertNull(ByteRange.parse("items=0-1", SIZE));
+        assertNull(ByteRange.parse("bytes=0-1,5-6", SIZE));
+        assertNull(ByteRange.parse("bytes=abc", SIZE));
+        assertNull(ByteRange.parse("bytes=500-100", SIZE));
+    }
+}
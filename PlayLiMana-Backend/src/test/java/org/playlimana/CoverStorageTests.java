@@ -0,0 +1,152 @@
+package org.playlimana;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.narayana.jta.TransactionRunnerOptions;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.playlimana.model.repository.CoverFileRepository;
+import org.playlimana.model.repository.CoverVariantRepository;
+import org.playlimana.storage.BlobLeases;
+import org.playlimana.storage.CoverStorage;
+import org.playlimana.storage.CoverThumbnails;
+import org.playlimana.storage.LocalFileBlobStore;
+import org.playlimana.storage.StagedCover;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CoverStorageTests {
+
+    private static final int MAX_SIZE = 64;
+    private static final byte[] PNG_HEADER = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 13};
+
+    @TempDir
+    Path directory;
+
+    private LocalFileBlobStore blobStore;
+    private BlobLeases blobLeases;
+    private CoverFileRepository coverFileRepository;
+    private CoverVariantRepository coverVariantRepository;
+    private CoverThumbnails coverThumbnails;
+    private CoverStorage coverStorage;
+    private MockedStatic<QuarkusTransaction> quarkusTransaction;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        blobStore = new LocalFileBlobStore(directory);
+        blobLeases = mock(BlobLeases.class);
+        when(blobLeases.put(any())).thenAnswer(invocation -> blobStore.put(invocation.getArgument(0)));
+        doAnswer(invocation -> {
+            blobStore.delete(invocation.getArgument(0));
+            return null;
+        }).when(blobLeases).delete(any());
+        coverFileRepository = mock(CoverFileRepository.class);
+        coverVariantRepository = mock(CoverVariantRepository.class);
+        coverThumbnails = mock(CoverThumbnails.class);
+
+        coverStorage = new CoverStorage(blobStore, blobLeases, coverFileRepository, coverVariantRepository,
+                coverThumbnails, mock(TransactionSynchronizationRegistry.class),
+                new MemorySize(BigInteger.valueOf(MAX_SIZE)));
+
+        // transactions just run their work, the repositories are mocked
+        TransactionRunnerOptions runner = mock(TransactionRunnerOptions.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(runner).run(any());
+        quarkusTransaction = Mockito.mockStatic(QuarkusTransaction.class);
+        quarkusTransaction.when(QuarkusTransaction::requiringNew).thenReturn(runner);
+    }
+
+    @AfterEach
+    void tearDown() {
+        quarkusTransaction.close();
+    }
+
+    private static InputStream png(int size) {
+        byte[] content = Arrays.copyOf(PNG_HEADER, size);
+        return new ByteArrayInputStream(content);
+    }
+
+    private long storedFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    @Test
+    void testStage_SupportedImage_IsStored() throws IOException {
+        StagedCover stagedCover = coverStorage.stage(png(MAX_SIZE));
+
+        assertNotNull(stagedCover);
+        assertEquals("image/png", stagedCover.contentType());
+        assertEquals(MAX_SIZE, stagedCover.size());
+        assertTrue(blobStore.exists(stagedCover.hash()));
+    }
+
+    @Test
+    void testStage_NotAnImage_IsRejectedBeforeWriting() throws IOException {
+        byte[] text = "<svg xmlns=\"http://www.w3.org/2000/svg\"/>".getBytes();
+
+        assertNull(coverStorage.stage(new ByteArrayInputStream(text)));
+        verify(blobLeases, never()).put(any());
+        assertEquals(0, storedFiles());
+    }
+
+    @Test
+    void testStage_TooLarge_IsRejectedAndNotStored() throws IOException {
+        assertNull(coverStorage.stage(png(MAX_SIZE + 1)));
+        assertEquals(0, storedFiles());
+    }
+
+    @Test
+    void testFinishStaged_Aborted_DeletesUnreferencedBlob() throws IOException {
+        StagedCover stagedCover = coverStorage.stage(png(32));
+        when(blobLeases.lockIfUnleased(stagedCover.hash())).thenReturn(true);
+
+        coverStorage.finishStaged(stagedCover, false);
+
+        verify(blobLeases).release(stagedCover.hash());
+        verify(coverThumbnails, never()).generateAsync(any());
+        assertFalse(blobStore.exists(stagedCover.hash()));
+    }
+
+    @Test
+    void testFinishStaged_Committed_KeepsReferencedBlob() throws IOException {
+        StagedCover stagedCover = coverStorage.stage(png(32));
+        when(blobLeases.lockIfUnleased(stagedCover.hash())).thenReturn(true);
+        when(coverFileRepository.countByHash(stagedCover.hash())).thenReturn(1L);
+
+        coverStorage.finishStaged(stagedCover, true);
+
+        verify(coverThumbnails).generateAsync(stagedCover.hash());
+        assertTrue(blobStore.exists(stagedCover.hash()));
+    }
+
+    @Test
+    void testFinishStaged_LeasedByOtherUpload_KeepsBlob() throws IOException {
+        StagedCover stagedCover = coverStorage.stage(png(32));
+        when(blobLeases.lockIfUnleased(stagedCover.hash())).thenReturn(false);
+
+        coverStorage.finishStaged(stagedCover, false);
+
+        verify(blobLeases, never()).delete(any());
+        assertTrue(blobStore.exists(stagedCover.hash()));
+    }
+}
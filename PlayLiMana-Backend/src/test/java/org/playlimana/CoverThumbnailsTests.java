@@ -0,0 +1,48 @@
+package org.playlimana;
+
+import org.junit.jupiter.api.Test;
+import org.playlimana.storage.CoverThumbnails;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoverThumbnailsTests {
+
+    @Test
+    void testResizeKeepsAspectRatio() {
+        BufferedImage image = new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB);
+
+        BufferedImage resized = CoverThumbnails.resize(image, 256);
+
+        assertEquals(256, resized.getWidth());
+        assertEquals(128, resized.getHeight());
+        assertFalse(resized.getColorModel().hasAlpha());
+    }
+
+    @Test
+    void testResizeKeepsTransparency() {
+        BufferedImage image = new BufferedImage(300, 600, BufferedImage.TYPE_INT_ARGB);
+
+        BufferedImage resized = CoverThumbnails.resize(image, 64);
+
+        assertEquals(32, resized.getWidth());
+        assertEquals(64, resized.getHeight());
+        assertTrue(resized.getColorModel().hasAlpha());
+    }
+
+    @Test
+    void testEncodedVariantCanBeRead() throws IOException {
+        BufferedImage resized = CoverThumbnails.resize(new BufferedImage(800, 800, BufferedImage.TYPE_INT_RGB), 640);
+
+        byte[] jpeg = CoverThumbnails.encode(resized, CoverThumbnails.JPEG);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(jpeg));
+
+        assertNotNull(decoded);
+        assertEquals(640, decoded.getWidth());
+        assertEquals(640, decoded.getHeight());
+    }
+}
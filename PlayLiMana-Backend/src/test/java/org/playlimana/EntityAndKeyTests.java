@@ -24,6 +24,7 @@ class EntityAndKeyTests {
     private SongEntity songEntity;
     private static final long SONG_ID = 1;
     private static final long PLAYTIME = 210;
+    private static final String CONTENT_HASH = "a".repeat(64);
     private List<String> artists;
     private List<String> genres;
     private LocalDate releaseDate;
@@ -36,7 +37,6 @@ class EntityAndKeyTests {
     private SongInPlaylistKey songInPlaylistKey;
     private SongInPlaylistEntity songInPlaylistEntity2;
     private SongEntity songEntity2;
-    private byte[] data;
     private PlaylistEntity playlistEntity3;
     private UserAccountEntity userAccountEntity;
     private UserAccountEntity userAccountEntity2;
@@ -87,9 +87,9 @@ class EntityAndKeyTests {
         songInPlaylistEntity2.setSongInPlaylistKey(songInPlaylistKey);
 
         // setUp for coverFileEntity
-        data = new byte[] {1, 2};
         coverFileEntity = new CoverFileEntity();
-        coverFileEntity.setData(data);
+        coverFileEntity.setContentHash(CONTENT_HASH);
+        coverFileEntity.setFileSize(2);
         coverFileEntity.setContentType("image/jpeg");
         coverFileEntity.setPlaylist(playlistEntity);
 
@@ -175,7 +175,6 @@ class EntityAndKeyTests {
         songInPlaylistKey = null;
         songInPlaylistEntity2 = null;
         songEntity2 = null;
-        data = null;
         playlistEntity3 = null;
         userAccountEntity = null;
         userAccountEntity2 = null;
@@ -209,7 +208,9 @@ class EntityAndKeyTests {
 
         coverFileEntity.setPlaylist(playlistEntity);
         assertNull(coverFileEntity.getCoverFileId());
-        assertEquals(data, coverFileEntity.getData());
+        assertEquals(CONTENT_HASH, coverFileEntity.getContentHash());
+        assertEquals(2, coverFileEntity.getFileSize());
+        assertNull(coverFileEntity.getLegacyData());
         assertEquals("image/jpeg", coverFileEntity.getContentType());
         assertEquals(playlistEntity, coverFileEntity.getPlaylist());
 
@@ -269,6 +270,120 @@ class EntityAndKeyTests {
 
     }
 
+    @Test
+    void testPlaylistEntitySongAggregates(){
+        playlistEntity2.addSong(songInPlaylistEntity2);
+        assertEquals(1, playlistEntity2.getNumberOfSongs());
+        assertEquals(PLAYTIME, playlistEntity2.getPlaytime());
+
+        playlistEntity2.removeSong(songInPlaylistEntity2);
+        assertEquals(0, playlistEntity2.getNumberOfSongs());
+        assertEquals(0, playlistEntity2.getPlaytime());
+
+        // removing a song that isn't in the playlist doesn't change anything
+        playlistEntity2.removeSong(songInPlaylistEntity2);
+        assertEquals(0, playlistEntity2.getNumberOfSongs());
+
+        // the copy takes over the aggregates of the original
+        assertEquals(1, new PlaylistEntity(playlistEntity).getNumberOfSongs());
+        assertEquals(PLAYTIME, new PlaylistEntity(playlistEntity).getPlaytime());
+    }
+
+    @Test
+    void testPlaylistEntityMoveSong(){
+        PlaylistEntity playlist = new PlaylistEntity("Playlist", "Description", null, Visibility.PRIVATE, Sorting.CUSTOM);
+        List<SongInPlaylistEntity> sips = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            SongEntity song = new SongEntity("Song " + i, artists, "Album", genres, PLAYTIME, releaseDate, linksForWebPlayer);
+            song.setSongId(i);
+            SongInPlaylistEntity sip = new SongInPlaylistEntity(addDate, playlistEntity, song);
+            playlist.addSong(sip);
+            sips.add(sip);
+        }
+        assertEquals(3 * PlaylistEntity.SORT_KEY_GAP, sips.get(3).getSortKey());
+
+        // moving the last song to the middle only changes its own key
+        assertTrue(playlist.moveSong(3, 1));
+        assertEquals(List.of(sips.get(0), sips.get(3), sips.get(1), sips.get(2)), playlist.getSongs());
+        assertEquals(PlaylistEntity.SORT_KEY_GAP / 2, sips.get(3).getSortKey());
+        assertEquals(PlaylistEntity.SORT_KEY_GAP, sips.get(1).getSortKey());
+
+        // moving to the front
+        assertTrue(playlist.moveSong(2, 0));
+        assertTrue(sips.get(1).getSortKey() < sips.get(0).getSortKey());
+
+        assertFalse(playlist.moveSong(0, 4));
+        assertFalse(playlist.moveSong(-1, 0));
+    }
+
+    @Test
+    void testPlaylistEntityRemoveSongAt(){
+        PlaylistEntity playlist = new PlaylistEntity("Playlist", "Description", null, Visibility.PRIVATE, Sorting.CUSTOM);
+        for (int i = 0; i < 3; i++) {
+            SongEntity song = new SongEntity("Song " + i, artists, "Album", genres, PLAYTIME, releaseDate, linksForWebPlayer);
+            song.setSongId(i);
+            playlist.addSong(new SongInPlaylistEntity(addDate, playlistEntity, song));
+        }
+
+        SongInPlaylistEntity removed = playlist.removeSongAt(1);
+        assertEquals("Song 1", removed.getSong().getTitle());
+        assertEquals(2, playlist.getNumberOfSongs());
+        assertEquals(2 * PLAYTIME, playlist.getPlaytime());
+        // remaining songs keep their sort keys
+        assertEquals(2 * PlaylistEntity.SORT_KEY_GAP, playlist.getSongs().get(1).getSortKey());
+    }
+
+    @Test
+    void testPlaylistEntityMoveSong_NoGapLeft_Renumbers(){
+        PlaylistEntity playlist = new PlaylistEntity("Playlist", "Description", null, Visibility.PRIVATE, Sorting.CUSTOM);
+        for (int i = 0; i < 3; i++) {
+            SongEntity song = new SongEntity("Song " + i, artists, "Album", genres, PLAYTIME, releaseDate, linksForWebPlayer);
+            song.setSongId(i);
+            playlist.addSong(new SongInPlaylistEntity(addDate, playlistEntity, song));
+        }
+        // keys without gaps, e.g. positions from before sparse keys
+        for (int i = 0; i < 3; i++) {
+            playlist.getSongs().get(i).setSortKey(i);
+        }
+
+        assertTrue(playlist.moveSong(2, 1));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i * PlaylistEntity.SORT_KEY_GAP, playlist.getSongs().get(i).getSortKey());
+        }
+        assertEquals("Song 2", playlist.getSongs().get(1).getSong().getTitle());
+    }
+
+    @Test
+    void testPlaylistEntityMoveSong_KeysAtIntRange_Renumbers(){
+        PlaylistEntity playlist = new PlaylistEntity("Playlist", "Description", null, Visibility.PRIVATE, Sorting.CUSTOM);
+        for (int i = 0; i < 3; i++) {
+            SongEntity song = new SongEntity("Song " + i, artists, "Album", genres, PLAYTIME, releaseDate, linksForWebPlayer);
+            song.setSongId(i);
+            playlist.addSong(new SongInPlaylistEntity(addDate, playlistEntity, song));
+        }
+        List<SongInPlaylistEntity> songs = playlist.getSongs();
+        songs.get(0).setSortKey(Integer.MIN_VALUE + 1);
+        songs.get(2).setSortKey(Integer.MAX_VALUE - 1);
+
+        // to the end after the highest possible key
+        assertTrue(playlist.moveSong(0, 2));
+        assertEquals(List.of(0, PlaylistEntity.SORT_KEY_GAP, 2 * PlaylistEntity.SORT_KEY_GAP),
+                songs.stream().map(SongInPlaylistEntity::getSortKey).toList());
+
+        songs.get(0).setSortKey(Integer.MIN_VALUE + 1);
+        // to the front before the lowest possible key
+        assertTrue(playlist.moveSong(2, 0));
+        assertEquals("Song 0", songs.get(0).getSong().getTitle());
+        assertTrue(songs.get(0).getSortKey() < songs.get(1).getSortKey());
+        assertTrue(songs.get(1).getSortKey() < songs.get(2).getSortKey());
+
+        songs.get(2).setSortKey(Integer.MAX_VALUE);
+        SongEntity song = new SongEntity("Song 3", artists, "Album", genres, PLAYTIME, releaseDate, linksForWebPlayer);
+        song.setSongId(3);
+        playlist.addSong(new SongInPlaylistEntity(addDate, playlistEntity, song));
+        assertEquals(3 * PlaylistEntity.SORT_KEY_GAP, songs.get(3).getSortKey());
+    }
+
     @Test
     void testPlaylistInLibraryEntity(){
 
@@ -0,0 +1,35 @@
+package org.playlimana;
+
+import org.junit.jupiter.api.Test;
+import org.playlimana.utils.ImageSniffer;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageSnifferTests {
+
+    @Test
+    void testSupportedImages() {
+        byte[] jpeg = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0x10};
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 0x0D};
+        byte[] webp = "RIFF\0\0\0\0WEBP".getBytes(StandardCharsets.US_ASCII);
+
+        assertEquals("image/jpeg", ImageSniffer.contentType(jpeg, jpeg.length));
+        assertEquals("image/png", ImageSniffer.contentType(png, png.length));
+        assertEquals("image/gif", ImageSniffer.contentType("GIF89a".getBytes(StandardCharsets.US_ASCII), 6));
+        assertEquals("image/webp", ImageSniffer.contentType(webp, webp.length));
+    }
+
+    @Test
+    void testOtherContentIsRejected() {
+        byte[] html = "<html><body>".getBytes(StandardCharsets.US_ASCII);
+        byte[] wave = "RIFF\0\0\0\0WAVE".getBytes(StandardCharsets.US_ASCII);
+
+        assertNull(ImageSniffer.contentType(html, html.length));
+        assertNull(ImageSniffer.contentType(wave, wave.length));
+        assertNull(ImageSniffer.contentType(new byte[ImageSniffer.HEADER_LENGTH], 0));
+        // a truncated JPEG header
+        assertNull(ImageSniffer.contentType(new byte[]{(byte) 0xFF, (byte) 0xD8}, 2));
+    }
+}
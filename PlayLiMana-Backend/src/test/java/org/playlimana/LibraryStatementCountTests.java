@@ -0,0 +1,111 @@
+package org.playlimana;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.playlimana.auth.UserProvider;
+import org.playlimana.metrics.RequestStatistics;
+import org.playlimana.model.Sorting;
+import org.playlimana.model.Visibility;
+import org.playlimana.model.dto.PlaylistDTO;
+import org.playlimana.model.entity.*;
+import org.playlimana.model.repository.PlaylistRepository;
+import org.playlimana.model.repository.SongRepository;
+import org.playlimana.model.repository.UserAccountRepository;
+import org.playlimana.service.PlaylistService;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+class LibraryStatementCountTests {
+
+    private static final String UID = "statement-count-user";
+    private static final int PLAYLISTS = 50;
+    private static final int SONGS_PER_PLAYLIST = 20;
+    private static final int MAX_STATEMENTS = 3;
+
+    @Inject
+    PlaylistService playlistService;
+    @Inject
+    UserProvider userProvider;
+    @Inject
+    UserAccountRepository userAccountRepository;
+    @Inject
+    PlaylistRepository playlistRepository;
+    @Inject
+    SongRepository songRepository;
+    @Inject
+    SessionFactory sessionFactory;
+    @Inject
+    RequestStatistics requestStatistics;
+
+    @BeforeEach
+    void setUp() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            if (userAccountRepository.findByUid(UID) != null) {
+                return;
+            }
+
+            UserAccountEntity user = new UserAccountEntity(UID, "statement_counter");
+            userAccountRepository.persist(user);
+
+            List<SongEntity> songs = new ArrayList<>();
+            for (int i = 0; i < SONGS_PER_PLAYLIST; i++) {
+                SongEntity song = new SongEntity("Song " + i, List.of("Artist " + i), "Album",
+                        List.of("Rock"), 200, LocalDate.of(2025, 6, 1), List.of("URL"));
+                songRepository.persist(song);
+                songs.add(song);
+            }
+
+            for (int i = 0; i < PLAYLISTS; i++) {
+                PlaylistEntity playlist = new PlaylistEntity("Playlist " + i, "Description",
+                        null, Visibility.PRIVATE, Sorting.CUSTOM);
+                playlistRepository.persist(playlist);
+                for (SongEntity song : songs) {
+                    playlist.getSongs().add(new SongInPlaylistEntity(LocalDateTime.now(), playlist, song));
+                }
+
+                PlaylistInLibraryEntity pil = new PlaylistInLibraryEntity(LocalDateTime.now(), playlist, user);
+                user.getPlaylistsInLibrary().add(pil);
+                pil.persist();
+            }
+        });
+    }
+
+    @Test
+    void testGetPlaylists_50Playlists_BoundedStatementCount() {
+        userProvider.setUser(QuarkusTransaction.requiringNew().call(() -> userAccountRepository.findByUid(UID)));
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+
+        List<PlaylistDTO> library = playlistService.getPlaylists();
+
+        assertEquals(PLAYLISTS, library.size());
+        assertTrue(library.stream().allMatch(playlist -> playlist.songs().size() == SONGS_PER_PLAYLIST));
+        assertTrue(statistics.getPrepareStatementCount() <= MAX_STATEMENTS,
+                "library of " + PLAYLISTS + " playlists needed " + statistics.getPrepareStatementCount() + " statements");
+    }
+
+    @Test
+    void testGetPlaylists_CountedForRequest() {
+        userProvider.setUser(QuarkusTransaction.requiringNew().call(() -> userAccountRepository.findByUid(UID)));
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        long statementsBefore = requestStatistics.getStatements();
+        long entityLoadsBefore = requestStatistics.getEntityLoads();
+
+        playlistService.getPlaylists();
+
+        assertEquals(statistics.getPrepareStatementCount(), requestStatistics.getStatements() - statementsBefore);
+        assertEquals(statistics.getEntityLoadCount(), requestStatistics.getEntityLoads() - entityLoadsBefore);
+    }
+}
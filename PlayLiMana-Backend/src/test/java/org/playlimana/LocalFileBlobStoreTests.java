@@ -0,0 +1,73 @@
+package org.playlimana;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.playlimana.storage.LocalFileBlobStore;
+import org.playlimana.storage.StoredBlob;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalFileBlobStoreTests {
+
+    @TempDir
+    Path directory;
+
+    LocalFileBlobStore blobStore;
+
+    @BeforeEach
+    void setUp() {
+        blobStore = new LocalFileBlobStore(directory);
+    }
+
+    private static InputStream content(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testPut_StoresContentUnderSha256() throws IOException {
+        StoredBlob blob = blobStore.put(content("cover"));
+
+        assertEquals("3fa405a8301ace34d11cf44a816080b8f0e49a48fbd048b8aef1543a8c58bdb6", blob.hash());
+        assertEquals(5, blob.size());
+        assertTrue(blobStore.exists(blob.hash()));
+        try (InputStream in = blobStore.open(blob.hash())) {
+            assertEquals("cover", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testPut_SameContent_IsStoredOnce() throws IOException {
+        StoredBlob first = blobStore.put(content("cover"));
+        StoredBlob second = blobStore.put(content("cover"));
+
+        assertEquals(first, second);
+        try (Stream<Path> files = Files.walk(directory)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void testDelete_RemovesBlob() throws IOException {
+        StoredBlob blob = blobStore.put(content("cover"));
+
+        blobStore.delete(blob.hash());
+
+        assertFalse(blobStore.exists(blob.hash()));
+        assertThrows(NoSuchFileException.class, () -> blobStore.open(blob.hash()));
+    }
+
+    @Test
+    void testOpen_InvalidHash_IsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> blobStore.open("../../etc/passwd"));
+    }
+}
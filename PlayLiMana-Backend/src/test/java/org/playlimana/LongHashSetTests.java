@@ -0,0 +1,61 @@
+package org.playlimana;
+
+import org.junit.jupiter.api.Test;
+import org.playlimana.utils.LongHashSet;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashSetTests {
+
+    @Test
+    void testAddAndContains() {
+        LongHashSet set = new LongHashSet();
+
+        assertTrue(set.add(1));
+        assertFalse(set.add(1));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.add(-5));
+
+        assertEquals(3, set.size());
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(-5));
+        assertFalse(set.contains(2));
+    }
+
+    @Test
+    void testBehavesLikeHashSet() {
+        Random random = new Random(42);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextInt(50_000);
+            assertEquals(expected.add(value), set.add(value));
+        }
+
+        assertEquals(expected.size(), set.size());
+        Set<Long> values = new HashSet<>();
+        set.forEach(values::add);
+        assertEquals(expected, values);
+    }
+
+    @Test
+    void testIntersectionSize() {
+        LongHashSet small = new LongHashSet();
+        LongHashSet large = new LongHashSet(1_000);
+        for (long i = 0; i < 1_000; i++) {
+            large.add(i);
+        }
+        small.add(0);
+        small.add(999);
+        small.add(1_000);
+
+        assertEquals(2, small.intersectionSize(large));
+        assertEquals(2, large.intersectionSize(small));
+        assertEquals(0, small.intersectionSize(new LongHashSet()));
+    }
+}
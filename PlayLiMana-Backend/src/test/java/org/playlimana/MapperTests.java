@@ -0,0 +1,98 @@
+package org.playlimana;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.playlimana.model.Sorting;
+import org.playlimana.model.Visibility;
+import org.playlimana.model.dto.PlaylistDTO;
+import org.playlimana.model.dto.SongDTO;
+import org.playlimana.model.entity.CoverFileEntity;
+import org.playlimana.model.entity.PlaylistEntity;
+import org.playlimana.model.entity.SongEntity;
+import org.playlimana.model.entity.SongInPlaylistEntity;
+import org.playlimana.utils.Mapper;
+import org.playlimana.utils.PlaylistJson;
+
+import java.lang.reflect.RecordComponent;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapperTests {
+
+    @Test
+    void testDateTimeRoundTrip() {
+        LocalDateTime dateTime = LocalDateTime.of(2025, 7, 1, 9, 5, 3);
+
+        assertEquals("2025-07-01T09:05:03", Mapper.mapLocalDateTimeToString(dateTime));
+        assertEquals(dateTime, Mapper.mapStringToLocalDateTime("2025-07-01T09:05:03"));
+        assertEquals("0042-01-02", Mapper.mapLocalDateToString(LocalDate.of(42, 1, 2)));
+    }
+
+    @Test
+    void testDateOnlyIsStartOfDay() {
+        assertEquals(LocalDateTime.of(2024, 2, 29, 0, 0), Mapper.mapStringToLocalDateTime("2024-02-29"));
+        assertEquals(LocalDate.of(2024, 2, 29), Mapper.mapStringToLocalDate("2024-02-29"));
+    }
+
+    @Test
+    void testUnusualDatesAreHandledByTheFormatter() {
+        // the formatter adjusts days that don't exist in the month
+        assertEquals(LocalDate.of(2023, 2, 28), Mapper.mapStringToLocalDate("2023-02-30"));
+        assertNull(Mapper.mapStringToLocalDateTime("2025-13-01"));
+        assertNull(Mapper.mapStringToLocalDateTime("2025-07-01 12:00:00"));
+        assertNull(Mapper.mapStringToLocalDateTime("yesterday"));
+    }
+
+    @Test
+    void testPlaylistJsonEqualsDTO() throws Exception {
+        PlaylistEntity playlist = new PlaylistEntity("Chill", null, "https://example.com/cover.jpg",
+                Visibility.PUBLIC, Sorting.CUSTOM);
+        playlist.setPlaylistId(7L);
+        SongEntity song = new SongEntity("Title", List.of("Artist"), "Album", null, 180,
+                LocalDate.of(2020, 5, 17), List.of("https://open.spotify.com/track/abc"));
+        song.setSongId(3L);
+        playlist.addSong(new SongInPlaylistEntity(LocalDateTime.of(2025, 1, 2, 3, 4, 5), playlist, song));
+        CoverFileEntity coverFile = new CoverFileEntity();
+        coverFile.setContentHash("a".repeat(64));
+        playlist.setCoverFile(coverFile);
+        LocalDateTime addDate = LocalDateTime.of(2025, 7, 1, 0, 0);
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        String expected = objectMapper.writeValueAsString(Mapper.toPlaylistDTO(playlist, addDate));
+        String actual = objectMapper.writeValueAsString(new PlaylistJson(playlist, addDate));
+
+        assertEquals(objectMapper.readTree(expected), objectMapper.readTree(actual));
+    }
+
+    @Test
+    void testPlaylistJsonWritesFieldsOfDTOs() throws Exception {
+        PlaylistEntity playlist = new PlaylistEntity("Chill", null, null, Visibility.PUBLIC, Sorting.CUSTOM);
+        playlist.setPlaylistId(7L);
+        SongEntity song = new SongEntity("Title", null, null, null, 180, null, null);
+        song.setSongId(3L);
+        playlist.addSong(new SongInPlaylistEntity(LocalDateTime.of(2025, 1, 2, 3, 4, 5), playlist, song));
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsString(new PlaylistJson(playlist, null)));
+
+        // fails when a field is added to or renamed in a DTO but not in the serializer
+        assertEquals(componentNames(PlaylistDTO.class), fieldNames(json));
+        assertEquals(componentNames(SongDTO.class), fieldNames(json.get("songs").get(0)));
+    }
+
+    private static List<String> componentNames(Class<? extends Record> type) {
+        return Arrays.stream(type.getRecordComponents()).map(RecordComponent::getName).toList();
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
@@ -1,24 +1,45 @@
 package org.playlimana;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.playlimana.auth.UserProvider;
 import org.playlimana.model.Sorting;
 import org.playlimana.model.Visibility;
+import org.playlimana.model.dto.FacetDTO;
+import org.playlimana.model.dto.FacetsDTO;
+import org.playlimana.model.dto.PageDTO;
 import org.playlimana.model.dto.PlaylistDTO;
+import org.playlimana.model.dto.PlaylistSummaryDTO;
+import org.playlimana.model.dto.SongDTO;
 import org.playlimana.model.entity.PlaylistEntity;
 import org.playlimana.model.entity.PlaylistInLibraryEntity;
+import org.playlimana.model.entity.SongEntity;
+import org.playlimana.model.entity.SongInPlaylistEntity;
 import org.playlimana.model.entity.UserAccountEntity;
 import org.playlimana.model.repository.CoverFileRepository;
 import org.playlimana.model.repository.PlaylistRepository;
 import org.playlimana.model.repository.SongRepository;
 import org.playlimana.service.PlaylistService;
+import org.playlimana.service.SongFacetIndex;
+import org.playlimana.service.SongKeyCache;
 import org.playlimana.service.SongService;
+import org.playlimana.service.SortedSongIndex;
+import org.playlimana.storage.CoverStorage;
+import org.playlimana.validation.PlaylistTextValidator;
 import org.mockito.Mockito;
 
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.when;
@@ -32,6 +53,8 @@ class PlaylistServiceTests {
     private UserProvider userProvider;
     private UserAccountEntity user;
     private PlaylistEntity playlistEntity;
+    private SortedSongIndex sortedSongIndex;
+    private SongFacetIndex songFacetIndex;
 
     @BeforeEach
     public void setUp() {
@@ -39,10 +62,14 @@ class PlaylistServiceTests {
         coverFileRepository = Mockito.mock(CoverFileRepository.class);
         songRepository = Mockito.mock(SongRepository.class);
 
-        songService = new SongService(songRepository);
+        songFacetIndex = new SongFacetIndex(songRepository);
+        songService = new SongService(songRepository, new SongKeyCache(), songFacetIndex);
         userProvider = Mockito.mock(UserProvider.class);
+        sortedSongIndex = new SortedSongIndex(Mockito.mock(TransactionSynchronizationRegistry.class));
 
-        playlistService = new PlaylistService(playlistRepository, coverFileRepository, songService, userProvider);
+        playlistService = new PlaylistService(playlistRepository, coverFileRepository, songService, userProvider,
+                Mockito.mock(CoverStorage.class), new PlaylistTextValidator(), sortedSongIndex,
+                songFacetIndex);
 
         user = Mockito.mock(UserAccountEntity.class);
     }
@@ -65,7 +92,8 @@ class PlaylistServiceTests {
 
         when(pil.getPlaylist()).thenReturn(playlist);
         when(pil.getAddDate()).thenReturn(LocalDateTime.of(2025, 6, 23, 0, 0));
-        when(user.getPlaylistsInLibrary()).thenReturn(List.of(pil));
+        when(user.getUid()).thenReturn("user1");
+        when(playlistRepository.findLibraryWithSongs("user1")).thenReturn(List.of(pil));
         when(userProvider.getUser()).thenReturn(user);
 
         List<PlaylistDTO> result = playlistService.getPlaylists();
@@ -81,18 +109,237 @@ class PlaylistServiceTests {
     }
 
     @Test
-    void testGetLibrary_ReturnsValidJson() {
+    void testGetPlaylists_SerializesAsJsonArray() throws JsonProcessingException {
         when(userProvider.getUser()).thenReturn(user);
         PlaylistInLibraryEntity pil = Mockito.mock(PlaylistInLibraryEntity.class);
         when(pil.getPlaylist()).thenReturn(Mockito.mock(PlaylistEntity.class));
         when(pil.getAddDate()).thenReturn(LocalDateTime.now());
-        when(user.getPlaylistsInLibrary()).thenReturn(List.of(pil));
+        when(user.getUid()).thenReturn("user1");
+        when(playlistRepository.findLibraryWithSongs("user1")).thenReturn(List.of(pil));
 
-        String json = playlistService.getLibrary();
+        String json = new ObjectMapper().writeValueAsString(playlistService.getPlaylists());
 
         assertTrue(json.startsWith("["));
     }
 
+    @Test
+    void testWritePlaylistsJson_EqualsSerializedDTOs() throws Exception {
+        PlaylistEntity playlist = new PlaylistEntity("Chill", "evening", null, Visibility.PUBLIC, Sorting.CUSTOM);
+        playlist.setPlaylistId(7L);
+        SongEntity song = new SongEntity("Title", List.of("Artist"), "Album", List.of("Jazz"), 180,
+                LocalDate.of(2020, 5, 17), List.of("https://open.spotify.com/track/abc"));
+        song.setSongId(3L);
+        playlist.addSong(new SongInPlaylistEntity(LocalDateTime.of(2025, 1, 2, 3, 4, 5), playlist, song));
+        PlaylistInLibraryEntity pil = Mockito.mock(PlaylistInLibraryEntity.class);
+        when(pil.getPlaylist()).thenReturn(playlist);
+        when(pil.getAddDate()).thenReturn(LocalDateTime.of(2025, 7, 1, 0, 0));
+        when(user.getUid()).thenReturn("user1");
+        when(userProvider.getUser()).thenReturn(user);
+        when(playlistRepository.findLibraryWithSongs("user1")).thenReturn(List.of(pil));
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        playlistService.writePlaylistsJson(objectMapper.writer(), json);
+
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(playlistService.getPlaylists())),
+                objectMapper.readTree(json.toByteArray()));
+    }
+
+    @Test
+    void testGetPublicPlaylists_KeepsSongsInPage() {
+        PlaylistEntity playlist = new PlaylistEntity("Open", null, null, Visibility.PUBLIC, Sorting.CUSTOM);
+        playlist.setPlaylistId(5L);
+        SongEntity song = new SongEntity("Title", List.of("Artist"), "Album", null, 180, null, List.of("URL"));
+        song.setSongId(3L);
+        playlist.addSong(new SongInPlaylistEntity(LocalDateTime.of(2025, 1, 2, 3, 4, 5), playlist, song));
+        when(playlistRepository.findPublicPageWithSongs(2L, 10)).thenReturn(List.of(playlist));
+
+        List<PlaylistDTO> result = playlistService.getPublicPlaylists(2L, 10);
+
+        assertEquals(1, result.size());
+        assertEquals(1, result.get(0).songs().size());
+        assertNull(playlistService.getPublicPlaylists(null, 0));
+    }
+
+    @Test
+    void testGetLibrarySummary_UsesAggregatesWithoutSongs() {
+        PlaylistEntity playlist = Mockito.mock(PlaylistEntity.class);
+        when(playlist.getPlaylistId()).thenReturn(7L);
+        when(playlist.getNumberOfSongs()).thenReturn(3);
+        when(playlist.getPlaytime()).thenReturn(600L);
+        PlaylistInLibraryEntity pil = Mockito.mock(PlaylistInLibraryEntity.class);
+        when(pil.getPlaylist()).thenReturn(playlist);
+        when(pil.getAddDate()).thenReturn(LocalDateTime.of(2025, 6, 23, 0, 0));
+        when(user.getUid()).thenReturn("user1");
+        when(playlistRepository.findLibrary("user1")).thenReturn(List.of(pil));
+        when(userProvider.getUser()).thenReturn(user);
+
+        List<PlaylistSummaryDTO> result = playlistService.getLibrarySummary();
+
+        assertEquals(1, result.size());
+        assertEquals(3, result.get(0).numberOfSongs());
+        assertEquals(600, result.get(0).playtime());
+        assertEquals("2025-06-23T00:00:00", result.get(0).addDate());
+        Mockito.verify(playlist, Mockito.never()).getSongs();
+    }
+
+    @Test
+    void testGetPlaylistSongs_InvalidPage_ReturnsNull() {
+        assertNull(playlistService.getPlaylistSongs(1L, null, -1, 10));
+        assertNull(playlistService.getPlaylistSongs(1L, null, 0, 0));
+        assertNull(playlistService.getPlaylistSongs(1L, null, Integer.MAX_VALUE / 10, 20));
+    }
+
+    @Test
+    void testGetPlaylistSongs_Sorted_KeepsPositionsAndCachesOrder() {
+        PlaylistEntity playlist = Mockito.mock(PlaylistEntity.class);
+        when(playlist.getVisibility()).thenReturn(Visibility.PUBLIC);
+        when(playlist.getSorting()).thenReturn(Sorting.TITLE);
+        when(playlistRepository.findById(1L)).thenReturn(playlist);
+        when(playlistRepository.findOrder(1L, Sorting.CUSTOM)).thenReturn(order(0, 1024, 2048));
+        // C, A, B in custom order
+        when(playlistRepository.findOrder(1L, Sorting.TITLE)).thenReturn(order(1024, 2048, 0));
+        when(playlistRepository.findSongsBySongIds(1L, List.of(1025L, 2049L)))
+                .thenReturn(List.of(sip(playlist, "B", 2048), sip(playlist, "A", 1024)));
+
+        PageDTO<SongDTO> page = playlistService.getPlaylistSongs(1L, null, 0, 2);
+
+        assertEquals(3, page.totalItems());
+        assertEquals(List.of("A", "B"), page.items().stream().map(SongDTO::title).toList());
+        assertEquals(List.of(1, 2), page.items().stream().map(SongDTO::positionInPlaylist).toList());
+
+        playlistService.getPlaylistSongs(1L, Sorting.TITLE, 0, 2);
+        Mockito.verify(playlistRepository, Mockito.times(1)).findOrder(1L, Sorting.TITLE);
+
+        sortedSongIndex.invalidate(1L);
+        playlistService.getPlaylistSongs(1L, Sorting.TITLE, 0, 2);
+        Mockito.verify(playlistRepository, Mockito.times(2)).findOrder(1L, Sorting.TITLE);
+    }
+
+    @Test
+    void testGetPlaylistSongs_SameSortKey_KeepsBothSongs() {
+        PlaylistEntity playlist = Mockito.mock(PlaylistEntity.class);
+        when(playlist.getVisibility()).thenReturn(Visibility.PUBLIC);
+        when(playlistRepository.findById(1L)).thenReturn(playlist);
+        SongInPlaylistEntity first = sip(playlist, "A", 1024);
+        SongInPlaylistEntity second = sip(playlist, "B", 1024);
+        second.getSong().setSongId(2000L);
+        // appended concurrently, both songs got the same sort key
+        when(playlistRepository.findOrder(1L, Sorting.CUSTOM)).thenReturn(List.of(
+                new Object[]{1025L, 1024}, new Object[]{2000L, 1024}));
+        when(playlistRepository.findSongsBySongIds(1L, List.of(1025L, 2000L))).thenReturn(List.of(second, first));
+
+        PageDTO<SongDTO> page = playlistService.getPlaylistSongs(1L, null, 0, 10);
+
+        assertEquals(List.of(0, 1), page.items().stream().map(SongDTO::positionInPlaylist).toList());
+        assertEquals(List.of("A", "B"), page.items().stream().map(SongDTO::title).toList());
+    }
+
+    @Test
+    void testGetPlaylistSongs_PageAfterLastSong_IsEmpty() {
+        PlaylistEntity playlist = Mockito.mock(PlaylistEntity.class);
+        when(playlist.getVisibility()).thenReturn(Visibility.PUBLIC);
+        when(playlistRepository.findById(1L)).thenReturn(playlist);
+        when(playlistRepository.findOrder(1L, Sorting.CUSTOM)).thenReturn(order(0, 1024));
+
+        PageDTO<SongDTO> page = playlistService.getPlaylistSongs(1L, null, 5, 100);
+
+        assertTrue(page.items().isEmpty());
+        assertEquals(2, page.totalItems());
+        Mockito.verify(playlistRepository, Mockito.never()).findSongsBySongIds(Mockito.any(), Mockito.any());
+    }
+
+    // rows of song ID and sort key like sip() creates them
+    private static List<Object[]> order(int... sortKeys) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int sortKey : sortKeys) {
+            rows.add(new Object[]{sortKey + 1L, sortKey});
+        }
+        return rows;
+    }
+
+    @Test
+    void testGetPlaylistFacets_CountsSongsOfPlaylist() {
+        songFacetIndex.add(1L, List.of("Queen"), List.of("Rock"));
+        songFacetIndex.add(2L, List.of("Queen", "David Bowie"), List.of("Rock", "Pop"));
+        songFacetIndex.add(3L, List.of("queen "), List.of("Rock"));
+        // not in the playlist
+        songFacetIndex.add(4L, List.of("ABBA"), List.of("Pop"));
+        PlaylistEntity playlist = Mockito.mock(PlaylistEntity.class);
+        when(playlist.getVisibility()).thenReturn(Visibility.PUBLIC);
+        when(playlistRepository.findById(1L)).thenReturn(playlist);
+        when(playlistRepository.findSongIds(1L)).thenReturn(Set.of(1L, 2L, 3L));
+
+        FacetsDTO facets = playlistService.getPlaylistFacets(1L, 10);
+
+        assertEquals(3, facets.numberOfSongs());
+        assertEquals(List.of(new FacetDTO("Queen", 3), new FacetDTO("David Bowie", 1)), facets.artists());
+        assertEquals(List.of(new FacetDTO("Rock", 3), new FacetDTO("Pop", 1)), facets.genres());
+        assertEquals(1, playlistService.getPlaylistFacets(1L, 1).artists().size());
+        assertNull(playlistService.getPlaylistFacets(1L, 0));
+    }
+
+    private static SongInPlaylistEntity sip(PlaylistEntity playlist, String title, int sortKey) {
+        SongEntity song = new SongEntity(title, List.of("Artist"), "Album", List.of(), 180,
+                LocalDate.of(2020, 1, 1), List.of());
+        song.setSongId(sortKey + 1L);
+        SongInPlaylistEntity sip = new SongInPlaylistEntity(LocalDateTime.of(2025, 6, 23, 0, 0), playlist, song);
+        sip.setSortKey(sortKey);
+        return sip;
+    }
+
+    @Test
+    void testAddSongsToPlaylist_NoSongs_ReturnsNull() {
+        assertNull(playlistService.addSongsToPlaylist(1L, null));
+        assertNull(playlistService.addSongsToPlaylist(1L, List.of()));
+        Mockito.verify(playlistRepository, Mockito.never()).findSongIds(Mockito.any());
+    }
+
+    @Test
+    void testRemoveSongFromPlaylist_SubtractsAggregatesInDatabase() {
+        PlaylistEntity playlist = new PlaylistEntity("Mix", "Description", null, Visibility.PUBLIC, Sorting.CUSTOM);
+        playlist.addSong(sip(playlist, "A", 0));
+        playlist.addSong(sip(playlist, "B", 1024));
+        when(playlistRepository.findByIdWithSongs(1L)).thenReturn(playlist);
+
+        assertNotNull(playlistService.removeSongFromPlaylist(1L, 1025L, 1));
+
+        assertEquals(1, playlist.getNumberOfSongs());
+        // added in the database instead of writing the value computed in memory
+        Mockito.verify(playlistRepository).addSongAggregates(1L, -1, -180L);
+    }
+
+    @Test
+    void testRemoveSongsFromPlaylist_NoPositions_ReturnsNull() {
+        assertNull(playlistService.removeSongsFromPlaylist(1L, null));
+        assertNull(playlistService.removeSongsFromPlaylist(1L, List.of()));
+        Mockito.verify(playlistRepository, Mockito.never()).deleteSongs(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void testRemoveSongsFromPlaylist_DeletesOnlySongsAtPositions() {
+        PlaylistEntity playlist = Mockito.mock(PlaylistEntity.class);
+        when(playlist.getVisibility()).thenReturn(Visibility.PUBLIC);
+        when(playlistRepository.findById(1L)).thenReturn(playlist);
+        when(playlistRepository.getEntityManager()).thenReturn(Mockito.mock(EntityManager.class));
+        // songs 5 and 6 were appended concurrently and share their sort key
+        when(playlistRepository.findSongIdsInOrder(1L)).thenReturn(List.of(4L, 5L, 6L));
+
+        assertNotNull(playlistService.removeSongsFromPlaylist(1L, List.of(1)));
+
+        Mockito.verify(playlistRepository).deleteSongs(1L, Set.of(5L));
+    }
+
+    @Test
+    void testCreatePlaylist_TooManySongs_ReturnsNull() {
+        when(userProvider.getUser()).thenReturn(user);
+        PlaylistDTO playlistDTO = new PlaylistDTO(0L, "Name", "Desc", Visibility.PUBLIC, Sorting.CUSTOM,
+                Collections.nCopies(10_001, null), 10_001, 0, "cover URL", null, "addDate");
+
+        assertNull(playlistService.createPlaylist(playlistDTO));
+        Mockito.verifyNoInteractions(songRepository);
+    }
+
     @Test
     void editPlaylist_ShouldReturnNull_WhenPlaylistDTOIsNull() {
         PlaylistDTO result = playlistService.editPlaylist(1L, null);
@@ -102,7 +349,7 @@ class PlaylistServiceTests {
     @Test
     void editPlaylist_ShouldReturnNull_WhenIdMismatch() {
         PlaylistDTO wrongIdDto = new PlaylistDTO(99L, "Name", "Desc",
-                Visibility.PUBLIC, Sorting.CUSTOM, List.of(), 0, 0, "cover URL", "addDate");
+                Visibility.PUBLIC, Sorting.CUSTOM, List.of(), 0, 0, "cover URL", null, "addDate");
         PlaylistDTO result = playlistService.editPlaylist(1L, wrongIdDto);
         assertNull(result);
     }
@@ -110,7 +357,7 @@ class PlaylistServiceTests {
     @Test
     void changePlaylistSongOrder_ShouldReturnNull_WhenInvalidData() {
         PlaylistDTO dto = new PlaylistDTO(2L, "Wrong ID", "Desc",
-                Visibility.PUBLIC, Sorting.CUSTOM, List.of(), 0, 0, "cover URL", "  ");
+                Visibility.PUBLIC, Sorting.CUSTOM, List.of(), 0, 0, "cover URL", null, "  ");
         PlaylistDTO result = playlistService.changePlaylistSongOrder(1L, dto);
         assertNull(result);
     }
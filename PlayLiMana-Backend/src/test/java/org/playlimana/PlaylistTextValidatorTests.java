@@ -0,0 +1,45 @@
+package org.playlimana;
+
+import org.junit.jupiter.api.Test;
+import org.playlimana.validation.PlaylistTextValidator;
+import org.playlimana.validation.ValidationResult;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaylistTextValidatorTests {
+
+    private static final String VALID_CHARACTERS_REGEX = "^[\\p{L}\\p{N} _\\-\\.\\u2000-\\u206F\\u2B50\\u2600-\\u26FF]*$";
+
+    PlaylistTextValidator validator = new PlaylistTextValidator();
+
+    @Test
+    void testValidNames() {
+        assertTrue(validator.validateName("Chill Vibes 2025").isValid());
+        assertTrue(validator.validateName("Müsli_Mix-No.1 ☀⭐").isValid());
+        // supplementary letters are letters too
+        assertTrue(validator.validateName("𝔄bc").isValid());
+    }
+
+    @Test
+    void testViolations() {
+        assertEquals(ValidationResult.Violation.MISSING, validator.validateName(null).violation());
+        assertEquals(ValidationResult.Violation.BLANK, validator.validateName("   ").violation());
+        assertEquals(ValidationResult.Violation.TOO_LONG,
+                validator.validateName("a".repeat(PlaylistTextValidator.MAX_LEN_NAME + 1)).violation());
+        assertTrue(validator.validateDescription("").isValid());
+
+        ValidationResult result = validator.validateDescription("party 😀");
+        assertEquals(ValidationResult.Violation.INVALID_CHARACTER, result.violation());
+        assertEquals(6, result.index());
+        assertEquals(0x1F600, result.codePoint());
+    }
+
+    @Test
+    void testSameResultAsRegexForEveryCodePoint() {
+        for (int codePoint = 0; codePoint <= Character.MAX_CODE_POINT; codePoint++) {
+            String text = new String(Character.toChars(codePoint));
+            assertEquals(text.matches(VALID_CHARACTERS_REGEX), validator.validate(text, 2).isValid(),
+                    "U+" + Integer.toHexString(codePoint));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.playlimana;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.matchesPattern;
+
+@QuarkusTest
+class RequestMetricsTests {
+
+    private static final String ENDPOINT = "endpoint=\"PlaylistController.getPublicPlaylists\"";
+
+    @Test
+    void testRequest_IsExportedPerEndpoint() {
+        given().when().get("/playlists/public").then().statusCode(200);
+
+        given().when().get("/q/metrics").then()
+                .statusCode(200)
+                .body(containsString("application_request_statements{" + ENDPOINT))
+                .body(containsString("application_request_duration_seconds{" + ENDPOINT))
+                .body(matchesPattern("(?s).*getPublicPlaylists_timer\\w*\\{[^}]*quantile=\"0\\.95\"[^}]*} .*"));
+    }
+}
@@ -0,0 +1,81 @@
+package org.playlimana;
+
+import org.junit.jupiter.api.Test;
+import org.playlimana.utils.SongIdentity;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SongIdentityTests {
+
+    @Test
+    void testNaturalKey_NormalizesMetadata() {
+        String key = SongIdentity.naturalKey("Lose Yourself", List.of("Eminem", "Dr. Dre"), "8 Mile", 326, List.of());
+
+        assertEquals(SongIdentity.KEY_LENGTH, key.length());
+        assertEquals(key, SongIdentity.naturalKey("  lose   YOURSELF", List.of("dr. dre", "EMINEM"), "8 mile ", 326, null));
+        assertNotEquals(key, SongIdentity.naturalKey("Lose Yourself", List.of("Eminem", "Dr. Dre"), "8 Mile", 327, List.of()));
+    }
+
+    @Test
+    void testNaturalKey_SpotifyLink_IgnoresMetadata() {
+        String key = SongIdentity.naturalKey("Title", List.of("Artist"), "Album", 200,
+                List.of("https://open.spotify.com/track/4cOdK2wGLETKBW3PvgPWqT?si=abc"));
+
+        assertEquals(key, SongIdentity.naturalKey("Other Title", List.of("Other Artist"), null, 201,
+                List.of("spotify:track:4cOdK2wGLETKBW3PvgPWqT")));
+        assertEquals(key, SongIdentity.naturalKey("Title", List.of("Artist"), "Album", 200,
+                List.of("https://open.spotify.com/intl-de/track/4cOdK2wGLETKBW3PvgPWqT")));
+        assertNotEquals(key, SongIdentity.naturalKey("Title", List.of("Artist"), "Album", 200,
+                List.of("https://open.spotify.com/track/0000000000000000000000")));
+    }
+
+    @Test
+    void testNaturalKey_InvalidLink_FallsBackToMetadata() {
+        assertEquals(SongIdentity.naturalKey("Title", List.of("Artist"), "Album", 200, List.of()),
+                SongIdentity.naturalKey("Title", List.of("Artist"), "Album", 200, List.of("not a link")));
+    }
+
+    @Test
+    void testNaturalKey_YouTubeLinks_KeepVideoId() {
+        String key = naturalKeyOfLink("https://www.youtube.com/watch?v=dQw4w9WgXcQ");
+
+        assertEquals(key, naturalKeyOfLink("https://youtu.be/dQw4w9WgXcQ?si=abc"));
+        assertEquals(key, naturalKeyOfLink("https://music.youtube.com/watch?v=dQw4w9WgXcQ&feature=share"));
+        assertEquals(key, naturalKeyOfLink("https://m.youtube.com/watch?t=42&v=dQw4w9WgXcQ"));
+        assertNotEquals(key, naturalKeyOfLink("https://www.youtube.com/watch?v=9bZkp7q19f0"));
+    }
+
+    @Test
+    void testNaturalKey_YouTubeLinkWithoutVideo_FallsBackToMetadata() {
+        assertEquals(SongIdentity.naturalKey("Title", List.of("Artist"), "Album", 200, List.of()),
+                naturalKeyOfLink("https://www.youtube.com/watch"));
+    }
+
+    @Test
+    void testNaturalKey_IdentifyingQueryParameters_AreKept() {
+        String key = naturalKeyOfLink("https://music.apple.com/de/album/a-night-at-the-opera/1440650428?i=1440650711");
+
+        assertNotEquals(key, naturalKeyOfLink(
+                "https://music.apple.com/de/album/a-night-at-the-opera/1440650428?i=1440650713"));
+        assertEquals(naturalKeyOfLink("https://player.example.com/play?track=1&id=2"),
+                naturalKeyOfLink("https://player.example.com/play?id=2&utm_source=app&track=1"));
+    }
+
+    @Test
+    void testNaturalKey_TrackingParameters_AreIgnored() {
+        assertEquals(naturalKeyOfLink("https://soundcloud.com/artist/track"),
+                naturalKeyOfLink("https://soundcloud.com/artist/track/?utm_source=clipboard&ref=share"));
+    }
+
+    @Test
+    void testNaturalKey_UnknownQueryParameters_FallBackToMetadata() {
+        assertEquals(SongIdentity.naturalKey("Title", List.of("Artist"), "Album", 200, List.of()),
+                naturalKeyOfLink("https://player.example.com/play?song=123"));
+    }
+
+    private static String naturalKeyOfLink(String link) {
+        return SongIdentity.naturalKey("Title", List.of("Artist"), "Album", 200, List.of(link));
+    }
+}
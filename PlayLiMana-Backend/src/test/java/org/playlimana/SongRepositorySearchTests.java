@@ -0,0 +1,50 @@
+package org.playlimana;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.playlimana.model.entity.SongEntity;
+import org.playlimana.model.repository.SongRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+class SongRepositorySearchTests {
+
+    private static final String TITLE = "Search Test Song";
+
+    @Inject
+    SongRepository songRepository;
+
+    @BeforeEach
+    void setUp() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            if (songRepository.count("title", TITLE) == 0) {
+                songRepository.persist(new SongEntity(TITLE, List.of("First Searchartist", "Second Searchartist"),
+                        "Search Test Album", List.of("Searchgenre Fusion"), 200, LocalDate.of(2025, 6, 1),
+                        List.of("URL")));
+            }
+        });
+    }
+
+    private List<String> searchLike(String pattern) {
+        return QuarkusTransaction.requiringNew().call(() -> songRepository.searchLike(pattern, null, 0, 10)
+                .stream().map(SongEntity::getTitle).toList());
+    }
+
+    @Test
+    void testSearchLike_MatchesGenres() {
+        assertEquals(List.of(TITLE), searchLike("%searchgenre fusion%"));
+        assertEquals(1, QuarkusTransaction.requiringNew().call(() -> songRepository.countLike("%searchgenre%", null)));
+    }
+
+    @Test
+    void testSearchLike_MatchesEveryArtist() {
+        assertEquals(List.of(TITLE), searchLike("%second searchartist%"));
+    }
+}
@@ -0,0 +1,95 @@
+package org.playlimana;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.playlimana.auth.UserProvider;
+import org.playlimana.model.dto.LibrarySongDTO;
+import org.playlimana.model.dto.PageDTO;
+import org.playlimana.model.dto.SongDTO;
+import org.playlimana.model.dto.SongLocationDTO;
+import org.playlimana.model.entity.SongEntity;
+import org.playlimana.model.entity.UserAccountEntity;
+import org.playlimana.model.repository.PlaylistRepository;
+import org.playlimana.model.repository.SongRepository;
+import org.playlimana.service.SongSearchService;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SongSearchServiceTests {
+
+    SongRepository songRepository;
+
+    PlaylistRepository playlistRepository;
+
+    UserProvider userProvider;
+
+    SongSearchService songSearchService;
+
+    SongEntity song;
+
+    @BeforeEach
+    void setUp() {
+        songRepository = mock(SongRepository.class);
+        playlistRepository = mock(PlaylistRepository.class);
+        userProvider = mock(UserProvider.class);
+        songSearchService = new SongSearchService(songRepository, playlistRepository, userProvider, "h2");
+
+        song = new SongEntity("Bohemian Rhapsody", List.of("Queen"), "A Night at the Opera",
+                List.of("Rock"), 355, LocalDate.of(1975, 10, 31), List.of());
+        song.setSongId(1L);
+    }
+
+    @Test
+    void testInvalidQueryOrPage_ReturnsNull() {
+        assertNull(songSearchService.searchSongs(null, 0, 20));
+        assertNull(songSearchService.searchSongs("  ", 0, 20));
+        assertNull(songSearchService.searchSongs("a".repeat(SongSearchService.MAX_QUERY_LENGTH + 1), 0, 20));
+        assertNull(songSearchService.searchSongs("queen", -1, 20));
+        assertNull(songSearchService.searchSongs("queen", 0, SongSearchService.MAX_PAGE_SIZE + 1));
+        assertNull(songSearchService.searchSongs("queen", Integer.MAX_VALUE / 10, 20));
+        verifyNoInteractions(songRepository);
+    }
+
+    @Test
+    void testWithoutFullTextIndex_SearchesWithEscapedLikePattern() {
+        when(songRepository.searchLike("%100!% queen!_%", null, 1, 20)).thenReturn(List.of(song));
+        when(songRepository.countLike("%100!% queen!_%", null)).thenReturn(21L);
+
+        PageDTO<SongDTO> page = songSearchService.searchSongs(" 100% Queen_ ", 1, 20);
+
+        assertEquals(21, page.totalItems());
+        assertEquals("Bohemian Rhapsody", page.items().get(0).title());
+        verify(songRepository, never()).searchFullText(anyString(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void testSearchLibrary_ReturnsPlaylistsAndPositions() {
+        UserAccountEntity user = mock(UserAccountEntity.class);
+        when(user.getUid()).thenReturn("user1");
+        when(userProvider.getUser()).thenReturn(user);
+        when(songRepository.searchLike("%queen%", "user1", 0, 20)).thenReturn(List.of(song));
+        when(songRepository.countLike("%queen%", "user1")).thenReturn(1L);
+        when(playlistRepository.findSongLocations("user1", List.of(1L))).thenReturn(List.of(
+                new Object[]{1L, 7L, "Mix", 4L},
+                new Object[]{1L, 9L, "Classics", 0L}));
+
+        PageDTO<LibrarySongDTO> page = songSearchService.searchLibrary("queen", 0, 20);
+
+        assertEquals(1, page.totalItems());
+        assertEquals("Bohemian Rhapsody", page.items().get(0).song().title());
+        assertEquals(List.of(new SongLocationDTO(7L, "Mix", 4), new SongLocationDTO(9L, "Classics", 0)),
+                page.items().get(0).playlists());
+    }
+
+    @Test
+    void testSearchLibrary_NotLoggedIn_ReturnsNull() {
+        when(userProvider.getUser()).thenReturn(null);
+
+        assertNull(songSearchService.searchLibrary("queen", 0, 20));
+        verifyNoInteractions(songRepository);
+    }
+}
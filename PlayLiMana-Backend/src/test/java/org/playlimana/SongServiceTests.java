@@ -6,8 +6,13 @@ import org.junit.jupiter.api.Test;
 import org.playlimana.model.dto.SongDTO;
 import org.playlimana.model.entity.SongEntity;
 import org.playlimana.model.repository.SongRepository;
+import org.playlimana.service.SongFacetIndex;
+import org.playlimana.service.SongKeyCache;
 import org.playlimana.service.SongService;
+import org.playlimana.utils.Mapper;
+import org.playlimana.utils.SongIdentity;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -34,7 +39,7 @@ class SongServiceTests {
     @BeforeEach
     void setUp() {
         songRepository = mock(SongRepository.class);
-        songService = new SongService(songRepository);
+        songService = new SongService(songRepository, new SongKeyCache(), new SongFacetIndex(songRepository));
 
         validSongDTO = new SongDTO(VALID_SONG_ID, "Test Song", List.of("Artist 1"),
                 "Album 1", List.of("Rock"), PLAYTIME, releaseDate, List.of("URL"),
@@ -112,4 +117,86 @@ class SongServiceTests {
         assertNull(result);
         verify(songRepository, never()).persist((SongEntity) any());
     }
+
+    @Test
+    void testCreateSong_SameSongWithoutId_ResolvesByNaturalKey() {
+        existingSong.setNaturalKey(SongIdentity.naturalKey(validSongDTO));
+        when(songRepository.findByNaturalKey(existingSong.getNaturalKey())).thenReturn(existingSong);
+        SongDTO importedAgain = new SongDTO(0, " test  SONG ", List.of("Artist 1"),
+                "album 1", List.of("Rock"), PLAYTIME, releaseDate, List.of("URL"),
+                "cover URL", POSITION_IN_PLAYLIST, addDate);
+
+        assertEquals(existingSong, songService.createSong(importedAgain));
+        // the second import is resolved through the cache by primary key
+        when(songRepository.findById(1L)).thenReturn(existingSong);
+        assertEquals(existingSong, songService.createSong(importedAgain));
+
+        verify(songRepository, times(1)).findByNaturalKey(anyString());
+        verify(songRepository, never()).persist((SongEntity) any());
+    }
+
+    @Test
+    void testCreateSong_NewSong_StoresNaturalKey() {
+        SongDTO newSongDTO = new SongDTO(0, "New Song", List.of("Artist 2"),
+                "Album 2", List.of("Pop"), PLAYTIME, releaseDate, List.of(),
+                "cover URL", POSITION_IN_PLAYLIST, addDate);
+
+        String naturalKey = SongIdentity.naturalKey(newSongDTO);
+        SongEntity insertedSong = Mapper.toSongEntity(newSongDTO);
+        insertedSong.setSongId(2L);
+        insertedSong.setNaturalKey(naturalKey);
+        when(songRepository.insertIgnoringConflicts(anyList())).thenReturn(1);
+        // not found before the insert, found afterwards
+        when(songRepository.findByNaturalKey(naturalKey)).thenReturn(null, insertedSong);
+
+        SongEntity result = songService.createSong(newSongDTO);
+
+        assertEquals(insertedSong, result);
+        verify(songRepository, never()).findById(any());
+        verify(songRepository).insertIgnoringConflicts(argThat(songs ->
+                songs.size() == 1 && naturalKey.equals(songs.get(0).getNaturalKey())));
+        verify(songRepository, never()).persist((SongEntity) any());
+    }
+
+    @Test
+    void testCreateSong_CreatedConcurrently_ReturnsOtherSong() {
+        SongDTO newSongDTO = new SongDTO(0, "New Song", List.of("Artist 2"),
+                "Album 2", List.of("Pop"), PLAYTIME, releaseDate, List.of(),
+                "cover URL", POSITION_IN_PLAYLIST, addDate);
+        String naturalKey = SongIdentity.naturalKey(newSongDTO);
+        SongEntity concurrentSong = Mapper.toSongEntity(newSongDTO);
+        concurrentSong.setSongId(3L);
+        concurrentSong.setNaturalKey(naturalKey);
+        // the other request committed between the lookup and the insert, so nothing is inserted
+        when(songRepository.insertIgnoringConflicts(anyList())).thenReturn(0);
+        when(songRepository.findByNaturalKey(naturalKey)).thenReturn(null, concurrentSong);
+
+        assertEquals(concurrentSong, songService.createSong(newSongDTO));
+    }
+
+    @Test
+    void testCreateSongs_LoadsExistingSongsAtOnce() {
+        when(songRepository.findByIds(any())).thenReturn(List.of(existingSong));
+        SongDTO newSongDTO = new SongDTO(0, "New Song", List.of("Artist 2"),
+                "Album 2", List.of("Pop"), PLAYTIME, releaseDate, List.of("URL"),
+                "cover URL", POSITION_IN_PLAYLIST, addDate);
+        SongEntity insertedSong = Mapper.toSongEntity(newSongDTO);
+        insertedSong.setSongId(2L);
+        insertedSong.setNaturalKey(SongIdentity.naturalKey(newSongDTO));
+        // not found before the insert, found afterwards
+        when(songRepository.findByNaturalKeys(any())).thenReturn(List.of()).thenReturn(List.of(insertedSong));
+
+        List<SongEntity> result = songService.createSongs(Arrays.asList(validSongDTO, null, newSongDTO, newSongDTO));
+
+        assertEquals(4, result.size());
+        assertEquals(existingSong, result.get(0));
+        assertNull(result.get(1));
+        assertEquals(insertedSong, result.get(2));
+        assertEquals(insertedSong, result.get(3));
+        verify(songRepository, times(1)).findByIds(any());
+        verify(songRepository, never()).findById(any());
+        verify(songRepository, never()).persist((SongEntity) any());
+        // the song that was sent twice is only inserted once
+        verify(songRepository, times(1)).insertIgnoringConflicts(argThat(songs -> songs.size() == 1));
+    }
 }
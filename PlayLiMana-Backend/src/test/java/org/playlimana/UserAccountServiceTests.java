@@ -6,6 +6,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
 import org.playlimana.auth.FirebaseTokenVerifier;
+import org.playlimana.auth.UserAccountCache;
 import org.playlimana.auth.UserProvider;
 import org.playlimana.model.entity.UserAccountEntity;
 import org.playlimana.model.repository.UserAccountRepository;
@@ -18,19 +19,22 @@ class UserAccountServiceTests {
 
     UserAccountRepository userAccountRepository;
     UserProvider userProvider;
+    UserAccountCache userAccountCache;
     UserAccountService userAccountService;
 
     @BeforeEach
     void setUp() {
         userAccountRepository = mock(UserAccountRepository.class);
         userProvider = mock(UserProvider.class);
-        userAccountService = new UserAccountService(userAccountRepository, userProvider);
+        userAccountCache = new UserAccountCache();
+        userAccountService = new UserAccountService(userAccountRepository, userProvider, userAccountCache);
     }
 
     @AfterEach
     void tearDown() {
         userAccountRepository = null;
         userProvider = null;
+        userAccountCache = null;
         userAccountService = null;
     }
 
@@ -72,6 +76,17 @@ class UserAccountServiceTests {
         assertEquals(username, user.getUsername());
     }
 
+    @Test
+    void testSetNewUsername_InvalidatesCachedAccount() {
+        UserAccountEntity user = new UserAccountEntity(uid, "old_name");
+        userAccountCache.put(user);
+        when(userAccountRepository.findByUid(uid)).thenReturn(user);
+
+        userAccountService.setNewUsername(uid, username);
+
+        assertNull(userAccountCache.get(uid));
+    }
+
     @Test
     void testValidateCredentials_ValidToken_ReturnsTrue() {
         FirebaseToken mockToken = mock(FirebaseToken.class);
@@ -115,6 +130,23 @@ class UserAccountServiceTests {
         }
     }
 
+    @Test
+    void testIsAuthorized_CachedAccount_SkipsDatabase() {
+        FirebaseToken mockToken = mock(FirebaseToken.class);
+        when(mockToken.getUid()).thenReturn(uid);
+        userAccountCache.put(new UserAccountEntity(uid, username));
+
+        try (MockedStatic<FirebaseTokenVerifier> mockVerifier = mockStatic(FirebaseTokenVerifier.class)) {
+            mockVerifier.when(() -> FirebaseTokenVerifier.verify("abc.def.ghi")).thenReturn(mockToken);
+
+            boolean result = userAccountService.isAuthorized("Bearer abc.def.ghi");
+
+            assertTrue(result);
+            verify(userProvider).setUserSummary(userAccountCache.get(uid));
+            verify(userAccountRepository, never()).findByUid(uid);
+        }
+    }
+
     @Test
     void testIsAuthorized_InvalidHeader_ReturnsFalse() {
         boolean result = userAccountService.isAuthorized("InvalidToken");
@@ -0,0 +1,91 @@
+package org.playlimana;
+
+import com.google.firebase.auth.FirebaseToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.playlimana.auth.VerifiedTokenCache;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VerifiedTokenCacheTests {
+
+    private static final long NOW = 1_750_000_000L;
+
+    VerifiedTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new VerifiedTokenCache(2, Clock.fixed(Instant.ofEpochSecond(NOW), ZoneOffset.UTC));
+    }
+
+    private FirebaseToken tokenExpiringAt(long exp) {
+        FirebaseToken token = mock(FirebaseToken.class);
+        when(token.getClaims()).thenReturn(Map.of("exp", exp));
+        return token;
+    }
+
+    @Test
+    void testGet_CachedToken_ReturnsToken() {
+        FirebaseToken token = tokenExpiringAt(NOW + 60);
+        cache.put("abc.def.ghi", token);
+
+        assertSame(token, cache.get("abc.def.ghi"));
+        assertNull(cache.get("other.token"));
+    }
+
+    @Test
+    void testPut_ExpiredToken_IsNotCached() {
+        cache.put("abc.def.ghi", tokenExpiringAt(NOW));
+
+        assertNull(cache.get("abc.def.ghi"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testPut_TokenWithoutExpiration_IsNotCached() {
+        FirebaseToken token = mock(FirebaseToken.class);
+        when(token.getClaims()).thenReturn(Map.of());
+
+        cache.put("abc.def.ghi", token);
+
+        assertNull(cache.get("abc.def.ghi"));
+    }
+
+    @Test
+    void testPut_FullCache_EvictsTokenExpiringFirst() {
+        FirebaseToken first = tokenExpiringAt(NOW + 10);
+        FirebaseToken second = tokenExpiringAt(NOW + 100);
+        FirebaseToken third = tokenExpiringAt(NOW + 50);
+
+        cache.put("first", first);
+        cache.put("second", second);
+        cache.put("third", third);
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("first"));
+        assertSame(second, cache.get("second"));
+        assertSame(third, cache.get("third"));
+    }
+
+    @Test
+    void testPut_SameTokenAgain_ReplacesEntry() {
+        FirebaseToken first = tokenExpiringAt(NOW + 10);
+        FirebaseToken renewed = tokenExpiringAt(NOW + 100);
+        FirebaseToken other = tokenExpiringAt(NOW + 50);
+
+        cache.put("token", first);
+        cache.put("token", renewed);
+        cache.put("other", other);
+
+        assertEquals(2, cache.size());
+        assertSame(renewed, cache.get("token"));
+        assertSame(other, cache.get("other"));
+    }
+}